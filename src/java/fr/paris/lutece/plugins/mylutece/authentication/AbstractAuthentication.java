@@ -39,7 +39,8 @@ import fr.paris.lutece.portal.service.security.LuteceUser;
 import javax.security.auth.login.LoginException;
 import javax.servlet.http.HttpServletRequest;
 import fr.paris.lutece.plugins.mylutece.service.MyLuteceUserService;
-import java.util.Arrays;
+import fr.paris.lutece.plugins.mylutece.service.RoleDictionary;
+import java.util.Collection;
 
 
 public abstract class AbstractAuthentication implements LuteceAuthentication
@@ -74,7 +75,18 @@ public abstract class AbstractAuthentication implements LuteceAuthentication
     @Override
     public boolean isUserInRole( LuteceUser user, HttpServletRequest request, String strRole )
     {
-        return Arrays.asList( user.getRoles( ) ).contains( strRole );
+        return UserRoleSets.isUserInRole( user, strRole );
+    }
+
+    /**
+     * Checks if a user has at least one of some roles
+     * @param user the user
+     * @param roles the role codes
+     * @return true if the user has one of the roles
+     */
+    public boolean isUserInAnyRole( LuteceUser user, Collection<String> roles )
+    {
+        return UserRoleSets.isUserInAnyRole( user, RoleDictionary.getInstance( ).getMask( roles ) );
     }
 
     /**
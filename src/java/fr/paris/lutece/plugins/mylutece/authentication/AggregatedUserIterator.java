@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.authentication;
+
+import fr.paris.lutece.plugins.mylutece.service.MyLuteceExecutorService;
+import fr.paris.lutece.portal.service.security.LuteceAuthentication;
+import fr.paris.lutece.portal.service.security.LuteceUser;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.io.Closeable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+/**
+ * Lazy iterator over the users of several authentications. <br>
+ * The users of an authentication are only fetched when the iteration reaches it, unless the
+ * authentications are prefetched concurrently. The authentications only provide their users as a
+ * whole, so the users of each authentication are held in memory while it is iterated, and the
+ * users of all the authentications when they are prefetched. <br>
+ * When the iterator is de-duplicated, the user with a given login is the one of the first
+ * authentication, in the given order. <br>
+ * An authentication whose users could not be fetched in time is logged and skipped :
+ * {@link #isPartial()} then returns true. An iterator abandoned before its end must be
+ * closed, so that the fetches still running are cancelled.
+ */
+public final class AggregatedUserIterator implements Iterator<LuteceUser>, Closeable
+{
+    private final List<LuteceAuthentication> _listAuthentications;
+    private final List<Future<Collection<LuteceUser>>> _listFutures;
+    private final long _lTimeLimit;
+    private final Set<String> _setLogins;
+    private int _nAuthentication;
+    private Iterator<LuteceUser> _currentIterator;
+    private LuteceUser _nextUser;
+    private boolean _bPartial;
+
+    /**
+     * Constructor
+     * @param listAuthentications the authentications, in priority order
+     * @param bDistinct true to return only the first user with a given login
+     * @param bPrefetch true to fetch the users of all the authentications concurrently
+     * @param lTimeLimit time limit of the concurrent fetch, in milliseconds since the epoch
+     */
+    AggregatedUserIterator( List<LuteceAuthentication> listAuthentications, boolean bDistinct, boolean bPrefetch,
+        long lTimeLimit )
+    {
+        _listAuthentications = listAuthentications;
+        _setLogins = bDistinct ? new HashSet<String>(  ) : null;
+        _lTimeLimit = lTimeLimit;
+
+        if ( bPrefetch && ( listAuthentications.size(  ) > 1 ) )
+        {
+            List<UsersFetch> listFetches = new ArrayList<UsersFetch>( listAuthentications.size(  ) );
+
+            for ( LuteceAuthentication authentication : listAuthentications )
+            {
+                listFetches.add( new UsersFetch( authentication ) );
+            }
+
+            _listFutures = MyLuteceExecutorService.getInstance(  ).submitAll( listFetches );
+        }
+        else
+        {
+            _listFutures = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext(  )
+    {
+        while ( _nextUser == null )
+        {
+            if ( ( _currentIterator != null ) && _currentIterator.hasNext(  ) )
+            {
+                LuteceUser user = _currentIterator.next(  );
+
+                if ( ( user != null ) && ( ( _setLogins == null ) || _setLogins.add( user.getName(  ) ) ) )
+                {
+                    _nextUser = user;
+                }
+            }
+            else if ( _nAuthentication < _listAuthentications.size(  ) )
+            {
+                Collection<LuteceUser> users = fetchUsers( _nAuthentication++ );
+                _currentIterator = ( users != null ) ? users.iterator(  ) : null;
+            }
+            else
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LuteceUser next(  )
+    {
+        if ( !hasNext(  ) )
+        {
+            throw new NoSuchElementException(  );
+        }
+
+        LuteceUser user = _nextUser;
+        _nextUser = null;
+
+        return user;
+    }
+
+    /**
+     * Tells whether the users of some authentications are missing, because they could not be fetched
+     * in time or their fetch failed
+     * @return true if the users listed so far are a partial result
+     */
+    public boolean isPartial(  )
+    {
+        return _bPartial;
+    }
+
+    /**
+     * Cancels the fetches still running. Must be called when the iterator is abandoned before its end.
+     */
+    @Override
+    public void close(  )
+    {
+        if ( _listFutures != null )
+        {
+            MyLuteceExecutorService.cancelAll( _listFutures );
+        }
+
+        _nAuthentication = _listAuthentications.size(  );
+        _currentIterator = null;
+    }
+
+    /**
+     * Not supported
+     */
+    @Override
+    public void remove(  )
+    {
+        throw new UnsupportedOperationException(  );
+    }
+
+    /**
+     * Gets the users of an authentication
+     * @param nIndex the index of the authentication
+     * @return the users, or null
+     */
+    private Collection<LuteceUser> fetchUsers( int nIndex )
+    {
+        if ( _listFutures != null )
+        {
+            Future<Collection<LuteceUser>> future = _listFutures.get( nIndex );
+            Collection<LuteceUser> users = MyLuteceExecutorService.getResult( future, _lTimeLimit );
+
+            if ( ( users == null ) && isFailed( future ) )
+            {
+                _bPartial = true;
+                AppLogService.error( "MyLutece : the users of the authentication " +
+                    _listAuthentications.get( nIndex ).getName(  ) +
+                    " are missing from the listing, they could not be fetched in time" );
+            }
+
+            return users;
+        }
+
+        return _listAuthentications.get( nIndex ).getUsers(  );
+    }
+
+    /**
+     * Tells whether a fetch did not complete normally
+     * @param future the future of the fetch
+     * @return true if the fetch has been cancelled, has failed or is still running
+     */
+    private static boolean isFailed( Future<?> future )
+    {
+        if ( !future.isDone(  ) || future.isCancelled(  ) )
+        {
+            return true;
+        }
+
+        try
+        {
+            future.get(  );
+
+            return false;
+        }
+        catch ( ExecutionException e )
+        {
+            return true;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread(  ).interrupt(  );
+
+            return true;
+        }
+    }
+
+    /**
+     * Fetch of the users of an authentication, run by the pool when prefetching
+     */
+    private static final class UsersFetch implements Callable<Collection<LuteceUser>>
+    {
+        private final LuteceAuthentication _authentication;
+
+        /**
+         * Constructor
+         * @param authentication the authentication
+         */
+        UsersFetch( LuteceAuthentication authentication )
+        {
+            _authentication = authentication;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Collection<LuteceUser> call(  )
+        {
+            return _authentication.getUsers(  );
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.authentication;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Map with weak keys compared by identity, whose reads neither lock nor allocate. <br>
+ * Entries are immutable and chained in an atomic table : a read walks the chain of its
+ * bucket, a write replaces the chain under a lock. The entries of the keys released by
+ * the garbage collector are removed by the next writes.
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class ConcurrentWeakIdentityMap<K, V>
+{
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int LOAD_FACTOR = 2;
+    private final ReferenceQueue<K> _queue = new ReferenceQueue<K>(  );
+    private volatile AtomicReferenceArray<Entry<K, V>> _table = new AtomicReferenceArray<Entry<K, V>>( INITIAL_CAPACITY );
+    private int _nSize;
+
+    /**
+     * Gets the value of a key
+     * @param key the key
+     * @return the value, or null
+     */
+    V get( K key )
+    {
+        AtomicReferenceArray<Entry<K, V>> table = _table;
+        int nHash = System.identityHashCode( key );
+
+        for ( Entry<K, V> entry = table.get( nHash & ( table.length(  ) - 1 ) ); entry != null; entry = entry._next )
+        {
+            if ( entry.get(  ) == key )
+            {
+                return entry._value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets the value of a key
+     * @param key the key
+     * @param value the value
+     */
+    synchronized void put( K key, V value )
+    {
+        expungeStaleEntries(  );
+
+        if ( _nSize >= ( _table.length(  ) * LOAD_FACTOR ) )
+        {
+            resize(  );
+        }
+
+        AtomicReferenceArray<Entry<K, V>> table = _table;
+        int nHash = System.identityHashCode( key );
+        int nIndex = nHash & ( table.length(  ) - 1 );
+
+        if ( remove( table, nIndex, key ) )
+        {
+            _nSize--;
+        }
+
+        table.set( nIndex, new Entry<K, V>( key, nHash, value, table.get( nIndex ), _queue ) );
+        _nSize++;
+    }
+
+    /**
+     * Gets the number of entries, without the ones of the released keys already
+     * reported by the garbage collector
+     * @return the number of entries
+     */
+    synchronized int size(  )
+    {
+        expungeStaleEntries(  );
+
+        return _nSize;
+    }
+
+    /**
+     * Removes the entries of the keys released by the garbage collector
+     */
+    private void expungeStaleEntries(  )
+    {
+        for ( Reference<? extends K> reference = _queue.poll(  ); reference != null; reference = _queue.poll(  ) )
+        {
+            AtomicReferenceArray<Entry<K, V>> table = _table;
+            int nIndex = ( (Entry<?, ?>) reference )._nHash & ( table.length(  ) - 1 );
+
+            if ( remove( table, nIndex, reference ) )
+            {
+                _nSize--;
+            }
+        }
+    }
+
+    /**
+     * Removes an entry from a chain. The entries before it are copied, so that the
+     * chain seen by the readers never changes.
+     * @param table the table
+     * @param nIndex the index of the chain
+     * @param target the key or the entry to remove
+     * @return true if an entry has been removed
+     */
+    private boolean remove( AtomicReferenceArray<Entry<K, V>> table, int nIndex, Object target )
+    {
+        Entry<K, V> head = table.get( nIndex );
+        Entry<K, V> found = null;
+
+        for ( Entry<K, V> entry = head; entry != null; entry = entry._next )
+        {
+            if ( ( entry == target ) || ( entry.get(  ) == target ) )
+            {
+                found = entry;
+
+                break;
+            }
+        }
+
+        if ( found == null )
+        {
+            return false;
+        }
+
+        Entry<K, V> newHead = found._next;
+
+        for ( Entry<K, V> entry = head; entry != found; entry = entry._next )
+        {
+            K key = entry.get(  );
+
+            if ( key != null )
+            {
+                newHead = new Entry<K, V>( key, entry._nHash, entry._value, newHead, _queue );
+            }
+        }
+
+        table.set( nIndex, newHead );
+
+        return true;
+    }
+
+    /**
+     * Doubles the size of the table. The new table is published once filled.
+     */
+    private void resize(  )
+    {
+        AtomicReferenceArray<Entry<K, V>> table = _table;
+        AtomicReferenceArray<Entry<K, V>> newTable = new AtomicReferenceArray<Entry<K, V>>( table.length(  ) * 2 );
+        int nSize = 0;
+
+        for ( int i = 0; i < table.length(  ); i++ )
+        {
+            for ( Entry<K, V> entry = table.get( i ); entry != null; entry = entry._next )
+            {
+                K key = entry.get(  );
+
+                if ( key != null )
+                {
+                    int nIndex = entry._nHash & ( newTable.length(  ) - 1 );
+                    newTable.set( nIndex, new Entry<K, V>( key, entry._nHash, entry._value, newTable.get( nIndex ), _queue ) );
+                    nSize++;
+                }
+            }
+        }
+
+        _table = newTable;
+        _nSize = nSize;
+    }
+
+    /**
+     * Immutable entry of a chain
+     * @param <K> the type of the key
+     * @param <V> the type of the value
+     */
+    private static final class Entry<K, V> extends WeakReference<K>
+    {
+        private final int _nHash;
+        private final V _value;
+        private final Entry<K, V> _next;
+
+        /**
+         * Constructor
+         * @param key the key
+         * @param nHash the identity hash of the key
+         * @param value the value
+         * @param next the next entry of the chain
+         * @param queue the queue notified when the key is released
+         */
+        Entry( K key, int nHash, V value, Entry<K, V> next, ReferenceQueue<K> queue )
+        {
+            super( key, queue );
+            _nHash = nHash;
+            _value = value;
+            _next = next;
+        }
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.authentication;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+
+/**
+ * Immutable copy of the parts of a request read by the external authentications. <br>
+ * The parallel probes run in the threads of the pool and may outlive the request when
+ * they time out : they must never use the request of the container, which is recycled
+ * as soon as the request is processed. The probes get a request built on this copy,
+ * taken in the request thread. It holds the headers, the cookies, the paths, the
+ * parameters, the attributes and the connection informations. The session is the one
+ * of the request, and can't be created. Any other method (body, dispatcher, roles, ...)
+ * throws an {@link UnsupportedOperationException} : only the authentications declared
+ * safe for the parallel probing are probed with a snapshot. <br>
+ * The attributes written by a probe are recorded, so that the ones of the probe whose
+ * user is kept can be applied to the request of the container, in the request thread.
+ */
+final class HttpRequestSnapshot implements InvocationHandler
+{
+    private static final String DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private final Map<String, List<String>> _mapHeaders = new TreeMap<String, List<String>>( String.CASE_INSENSITIVE_ORDER );
+    private final Cookie[] _arrayCookies;
+    private final Map<String, String[]> _mapParameters = new HashMap<String, String[]>(  );
+    private final Map<String, Object> _mapAttributes = Collections.synchronizedMap( new HashMap<String, Object>(  ) );
+    private final Map<String, Object> _mapWrittenAttributes = Collections.synchronizedMap( new LinkedHashMap<String, Object>(  ) );
+    private final Map<String, Object> _mapValues = new HashMap<String, Object>(  );
+    private final List<Locale> _listLocales = new ArrayList<Locale>(  );
+    private final HttpSession _session;
+    private final HttpServletRequest _proxy;
+
+    /**
+     * Copies a request
+     * @param request the request of the container
+     */
+    HttpRequestSnapshot( HttpServletRequest request )
+    {
+        for ( Enumeration<?> names = request.getHeaderNames(  ); ( names != null ) && names.hasMoreElements(  ); )
+        {
+            String strName = (String) names.nextElement(  );
+            List<String> listValues = new ArrayList<String>(  );
+
+            for ( Enumeration<?> values = request.getHeaders( strName ); values.hasMoreElements(  ); )
+            {
+                listValues.add( (String) values.nextElement(  ) );
+            }
+
+            _mapHeaders.put( strName, Collections.unmodifiableList( listValues ) );
+        }
+
+        Cookie[] arrayCookies = request.getCookies(  );
+
+        if ( arrayCookies != null )
+        {
+            _arrayCookies = new Cookie[arrayCookies.length];
+
+            for ( int i = 0; i < arrayCookies.length; i++ )
+            {
+                _arrayCookies[i] = (Cookie) arrayCookies[i].clone(  );
+            }
+        }
+        else
+        {
+            _arrayCookies = null;
+        }
+
+        for ( Map.Entry<?, ?> entry : ( (Map<?, ?>) request.getParameterMap(  ) ).entrySet(  ) )
+        {
+            _mapParameters.put( (String) entry.getKey(  ), ( (String[]) entry.getValue(  ) ).clone(  ) );
+        }
+
+        for ( Enumeration<?> names = request.getAttributeNames(  ); names.hasMoreElements(  ); )
+        {
+            String strName = (String) names.nextElement(  );
+            _mapAttributes.put( strName, request.getAttribute( strName ) );
+        }
+
+        for ( Enumeration<?> locales = request.getLocales(  ); locales.hasMoreElements(  ); )
+        {
+            _listLocales.add( (Locale) locales.nextElement(  ) );
+        }
+
+        _session = request.getSession( false );
+        _mapValues.put( "getMethod", request.getMethod(  ) );
+        _mapValues.put( "getRequestURI", request.getRequestURI(  ) );
+        _mapValues.put( "getRequestURL", request.getRequestURL(  ).toString(  ) );
+        _mapValues.put( "getServletPath", request.getServletPath(  ) );
+        _mapValues.put( "getContextPath", request.getContextPath(  ) );
+        _mapValues.put( "getPathInfo", request.getPathInfo(  ) );
+        _mapValues.put( "getPathTranslated", request.getPathTranslated(  ) );
+        _mapValues.put( "getQueryString", request.getQueryString(  ) );
+        _mapValues.put( "getAuthType", request.getAuthType(  ) );
+        _mapValues.put( "getRemoteUser", request.getRemoteUser(  ) );
+        _mapValues.put( "getUserPrincipal", request.getUserPrincipal(  ) );
+        _mapValues.put( "getRequestedSessionId", request.getRequestedSessionId(  ) );
+        _mapValues.put( "isRequestedSessionIdValid", request.isRequestedSessionIdValid(  ) );
+        _mapValues.put( "isRequestedSessionIdFromCookie", request.isRequestedSessionIdFromCookie(  ) );
+        _mapValues.put( "isRequestedSessionIdFromURL", request.isRequestedSessionIdFromURL(  ) );
+        _mapValues.put( "getCharacterEncoding", request.getCharacterEncoding(  ) );
+        _mapValues.put( "getContentType", request.getContentType(  ) );
+        _mapValues.put( "getContentLength", request.getContentLength(  ) );
+        _mapValues.put( "getProtocol", request.getProtocol(  ) );
+        _mapValues.put( "getScheme", request.getScheme(  ) );
+        _mapValues.put( "getServerName", request.getServerName(  ) );
+        _mapValues.put( "getServerPort", request.getServerPort(  ) );
+        _mapValues.put( "getRemoteAddr", request.getRemoteAddr(  ) );
+        _mapValues.put( "getRemoteHost", request.getRemoteHost(  ) );
+        _mapValues.put( "getRemotePort", request.getRemotePort(  ) );
+        _mapValues.put( "getLocalName", request.getLocalName(  ) );
+        _mapValues.put( "getLocalAddr", request.getLocalAddr(  ) );
+        _mapValues.put( "getLocalPort", request.getLocalPort(  ) );
+        _mapValues.put( "isSecure", request.isSecure(  ) );
+        _mapValues.put( "getLocale", request.getLocale(  ) );
+        _proxy = (HttpServletRequest) Proxy.newProxyInstance( HttpServletRequest.class.getClassLoader(  ),
+                new Class<?>[] { HttpServletRequest.class }, this );
+    }
+
+    /**
+     * Gets the request reading the copy only, to give to a probe
+     * @return the request
+     */
+    HttpServletRequest getRequest(  )
+    {
+        return _proxy;
+    }
+
+    /**
+     * Applies the attributes written by the probe to the request of the container.
+     * Must be called in the request thread, once the probe is done.
+     * @param request the request of the container
+     */
+    void applyWrittenAttributes( HttpServletRequest request )
+    {
+        synchronized ( _mapWrittenAttributes )
+        {
+            for ( Map.Entry<String, Object> entry : _mapWrittenAttributes.entrySet(  ) )
+            {
+                if ( entry.getValue(  ) == null )
+                {
+                    request.removeAttribute( entry.getKey(  ) );
+                }
+                else
+                {
+                    request.setAttribute( entry.getKey(  ), entry.getValue(  ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object invoke( Object proxy, Method method, Object[] args )
+    {
+        String strMethod = method.getName(  );
+
+        if ( _mapValues.containsKey( strMethod ) && ( method.getParameterTypes(  ).length == 0 ) )
+        {
+            Object value = _mapValues.get( strMethod );
+
+            // The StringBuffer of the Url is mutable
+            return "getRequestURL".equals( strMethod ) ? new StringBuffer( (String) value ) : value;
+        }
+
+        switch ( strMethod )
+        {
+            case "getHeader":
+                return getHeader( (String) args[0] );
+
+            case "getHeaders":
+                return Collections.enumeration( getHeaders( (String) args[0] ) );
+
+            case "getHeaderNames":
+                return Collections.enumeration( _mapHeaders.keySet(  ) );
+
+            case "getIntHeader":
+                return getIntHeader( (String) args[0] );
+
+            case "getDateHeader":
+                return getDateHeader( (String) args[0] );
+
+            case "getCookies":
+                return getCookies(  );
+
+            case "getParameter":
+                return getParameter( (String) args[0] );
+
+            case "getParameterValues":
+                return getParameterValues( (String) args[0] );
+
+            case "getParameterNames":
+                return Collections.enumeration( _mapParameters.keySet(  ) );
+
+            case "getParameterMap":
+                return Collections.unmodifiableMap( _mapParameters );
+
+            case "getAttribute":
+                return _mapAttributes.get( args[0] );
+
+            case "getAttributeNames":
+                return Collections.enumeration( new ArrayList<String>( _mapAttributes.keySet(  ) ) );
+
+            case "setAttribute":
+                setAttribute( (String) args[0], args[1] );
+
+                return null;
+
+            case "removeAttribute":
+                setAttribute( (String) args[0], null );
+
+                return null;
+
+            case "getLocales":
+                return Collections.enumeration( _listLocales );
+
+            case "getSession":
+                return getSession( ( args == null ) || (Boolean) args[0] );
+
+            case "hashCode":
+                return System.identityHashCode( proxy );
+
+            case "equals":
+                return proxy == args[0];
+
+            case "toString":
+                return "MyLutece request snapshot of " + _mapValues.get( "getRequestURI" );
+
+            default:
+                throw new UnsupportedOperationException( "MyLutece : " + strMethod +
+                    " can't be called by a parallel authentication probe" );
+        }
+    }
+
+    /**
+     * Gets the first value of a header
+     * @param strName the name of the header
+     * @return the value, or null
+     */
+    private String getHeader( String strName )
+    {
+        List<String> listValues = getHeaders( strName );
+
+        return listValues.isEmpty(  ) ? null : listValues.get( 0 );
+    }
+
+    /**
+     * Gets the values of a header
+     * @param strName the name of the header
+     * @return the values
+     */
+    private List<String> getHeaders( String strName )
+    {
+        List<String> listValues = _mapHeaders.get( strName );
+
+        return ( listValues != null ) ? listValues : Collections.<String>emptyList(  );
+    }
+
+    /**
+     * Gets a header as an integer
+     * @param strName the name of the header
+     * @return the value, or -1 if the header is missing
+     */
+    private int getIntHeader( String strName )
+    {
+        String strValue = getHeader( strName );
+
+        return ( strValue != null ) ? Integer.parseInt( strValue ) : ( -1 );
+    }
+
+    /**
+     * Gets a header as a date
+     * @param strName the name of the header
+     * @return the date in milliseconds since the epoch, or -1 if the header is missing
+     */
+    private long getDateHeader( String strName )
+    {
+        String strValue = getHeader( strName );
+
+        if ( strValue == null )
+        {
+            return -1L;
+        }
+
+        try
+        {
+            return new SimpleDateFormat( DATE_FORMAT, Locale.US ).parse( strValue ).getTime(  );
+        }
+        catch ( ParseException e )
+        {
+            throw new IllegalArgumentException( "MyLutece : invalid date header " + strName + " : " + strValue, e );
+        }
+    }
+
+    /**
+     * Gets copies of the cookies, so that a probe can't alter the snapshot
+     * @return the cookies, or null
+     */
+    private Cookie[] getCookies(  )
+    {
+        if ( _arrayCookies == null )
+        {
+            return null;
+        }
+
+        Cookie[] arrayCookies = new Cookie[_arrayCookies.length];
+
+        for ( int i = 0; i < _arrayCookies.length; i++ )
+        {
+            arrayCookies[i] = (Cookie) _arrayCookies[i].clone(  );
+        }
+
+        return arrayCookies;
+    }
+
+    /**
+     * Gets the first value of a parameter
+     * @param strName the name of the parameter
+     * @return the value, or null
+     */
+    private String getParameter( String strName )
+    {
+        String[] arrayValues = _mapParameters.get( strName );
+
+        return ( ( arrayValues != null ) && ( arrayValues.length > 0 ) ) ? arrayValues[0] : null;
+    }
+
+    /**
+     * Gets the values of a parameter
+     * @param strName the name of the parameter
+     * @return a copy of the values, or null
+     */
+    private String[] getParameterValues( String strName )
+    {
+        String[] arrayValues = _mapParameters.get( strName );
+
+        return ( arrayValues != null ) ? arrayValues.clone(  ) : null;
+    }
+
+    /**
+     * Sets an attribute of the snapshot, and records the write for
+     * {@link #applyWrittenAttributes(HttpServletRequest)}
+     * @param strName the name of the attribute
+     * @param value the value, or null to remove the attribute
+     */
+    private void setAttribute( String strName, Object value )
+    {
+        if ( value == null )
+        {
+            _mapAttributes.remove( strName );
+        }
+        else
+        {
+            _mapAttributes.put( strName, value );
+        }
+
+        synchronized ( _mapWrittenAttributes )
+        {
+            // Keep the writes in their last order
+            _mapWrittenAttributes.remove( strName );
+            _mapWrittenAttributes.put( strName, value );
+        }
+    }
+
+    /**
+     * Gets the session of the request
+     * @param bCreate true if a session is required
+     * @return the session, or null
+     */
+    private HttpSession getSession( boolean bCreate )
+    {
+        if ( ( _session == null ) && bCreate )
+        {
+            throw new UnsupportedOperationException( "MyLutece : a parallel authentication probe can't create a session" );
+        }
+
+        return _session;
+    }
+}
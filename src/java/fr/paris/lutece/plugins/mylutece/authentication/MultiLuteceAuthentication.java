@@ -33,6 +33,10 @@
  */
 package fr.paris.lutece.plugins.mylutece.authentication;
 
+import fr.paris.lutece.plugins.mylutece.service.ExternalIdentityCacheService;
+import fr.paris.lutece.plugins.mylutece.service.MyLuteceExecutorService;
+import fr.paris.lutece.plugins.mylutece.service.UserAttributesCacheService;
+import fr.paris.lutece.plugins.mylutece.service.security.UserAuthenticationIndexService;
 import fr.paris.lutece.plugins.mylutece.web.MyLuteceApp;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -41,15 +45,20 @@ import fr.paris.lutece.portal.service.security.LoginRedirectException;
 import fr.paris.lutece.portal.service.security.LuteceAuthentication;
 import fr.paris.lutece.portal.service.security.LuteceUser;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.web.LocalVariables;
 
 import org.apache.commons.lang.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import javax.security.auth.login.LoginException;
 
@@ -64,7 +73,22 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 {
     private static final String PROPERTY_MESSAGE_NO_AUTHENTICATION_SELECTED = "mylutece.message.noAuthenticationSelected";
     private static final String PARAMETER_AUTH_PROVIDER = "auth_provider";
-    private static final Map<String, LuteceAuthentication> _mapAuthentications = new HashMap<String, LuteceAuthentication>(  );
+    private static final String PROPERTY_AUTHENTICATION_PRIORITY = "mylutece.authentication.priority";
+    private static final String PROPERTY_HTTP_USER_PARALLEL = "mylutece.authentication.httpUser.parallel";
+    private static final String PROPERTY_HTTP_USER_PROVIDER_TIMEOUT = "mylutece.authentication.httpUser.providerTimeout";
+    private static final String PROPERTY_HTTP_USER_DEADLINE = "mylutece.authentication.httpUser.deadline";
+    private static final String PROPERTY_PREFIX_AUTHENTICATION = "mylutece.authentication.";
+    private static final String PROPERTY_SUFFIX_HTTP_USER_PARALLEL_SAFE = ".httpUser.parallelSafe";
+    private static final long DEFAULT_HTTP_USER_PROVIDER_TIMEOUT = 500L;
+    private static final long DEFAULT_HTTP_USER_DEADLINE = 1000L;
+    private static final String PROPERTY_USERS_PARALLEL = "mylutece.authentication.users.parallel";
+    private static final String PROPERTY_USERS_TIMEOUT = "mylutece.authentication.users.timeout";
+    private static final long DEFAULT_USERS_TIMEOUT = 30000L;
+    private static final String CONSTANT_COMMA = ",";
+    private static final Object LOCK = new Object(  );
+
+    // Copy-on-write registry : readers never lock, writers publish a new snapshot
+    private static volatile Registry _registry = new Registry( new LinkedHashMap<String, LuteceAuthentication>(  ) );
 
     /**
      * Registers an authentication. Should be called at plugin init/install.
@@ -73,7 +97,13 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
     public static void registerAuthentication( LuteceAuthentication authentication )
     {
         AppLogService.info( "MultiLuteceAuthentication : Registering authentication " + authentication.getName(  ) );
-        _mapAuthentications.put( authentication.getName(  ), authentication );
+
+        synchronized ( LOCK )
+        {
+            Map<String, LuteceAuthentication> mapAuthentications = new LinkedHashMap<String, LuteceAuthentication>( _registry.getMap(  ) );
+            mapAuthentications.put( authentication.getName(  ), authentication );
+            _registry = new Registry( mapAuthentications );
+        }
     }
 
     /**
@@ -82,15 +112,34 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
      */
     public static void removeAuthentication( String strAuthenticationName )
     {
-        if ( _mapAuthentications.containsKey( strAuthenticationName ) )
+        synchronized ( LOCK )
         {
-            AppLogService.info( "MultiLuteceAuthentication : Unregistering authentication " + strAuthenticationName );
-            _mapAuthentications.remove( strAuthenticationName );
+            if ( _registry.getMap(  ).containsKey( strAuthenticationName ) )
+            {
+                AppLogService.info( "MultiLuteceAuthentication : Unregistering authentication " +
+                    strAuthenticationName );
+
+                Map<String, LuteceAuthentication> mapAuthentications = new LinkedHashMap<String, LuteceAuthentication>( _registry.getMap(  ) );
+                mapAuthentications.remove( strAuthenticationName );
+                _registry = new Registry( mapAuthentications );
+            }
+            else
+            {
+                AppLogService.error( "Unable to remove authentication " + strAuthenticationName +
+                    ". Authentication not found. Available values are " + _registry.getMap(  ).keySet(  ) );
+            }
         }
-        else
+    }
+
+    /**
+     * Forgets the list of the installed authentications. Should be called when a plugin is installed or uninstalled.
+     */
+    public static void resetInstalledAuthentications(  )
+    {
+        synchronized ( LOCK )
         {
-            AppLogService.error( "Unable to remove authentication " + strAuthenticationName +
-                ". Authentication not found. Available values are " + _mapAuthentications.keySet(  ) );
+            // Same authentications, the installed ones will be computed again
+            _registry = new Registry( new LinkedHashMap<String, LuteceAuthentication>( _registry.getMap(  ) ) );
         }
     }
 
@@ -110,7 +159,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strLoginUrl = authentication.getLoginPageUrl(  );
             }
         }
@@ -134,7 +183,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strLoginUrl = authentication.getDoLoginUrl(  );
             }
         }
@@ -158,7 +207,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strNewAccountUrl = authentication.getNewAccountPageUrl(  );
             }
         }
@@ -182,7 +231,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strViewAccountUrl = authentication.getViewAccountPageUrl(  );
             }
         }
@@ -206,7 +255,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strLostPasswordUrl = authentication.getLostPasswordPageUrl(  );
             }
         }
@@ -231,7 +280,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strLostLoginUrl = authentication.getLostLoginPageUrl(  );
             }
         }
@@ -254,7 +303,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 bResetPasswordActive = authentication.findResetPassword( request, strLogin );
             }
         }
@@ -276,7 +325,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strResetPasswordUrl = authentication.getResetPasswordPageUrl( request );
             }
         }
@@ -300,7 +349,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 strDoLogoutUrl = authentication.getDoLogoutUrl(  );
             }
         }
@@ -368,18 +417,25 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
     /**
      *
      * Finds the http authenticated user. <br>
+     * The external authentications are probed in priority order, or concurrently if the parallel mode is enabled.
+     * Authentications whose {@link IHttpAuthenticationHint} rejects the request are not probed.
      * @param request the reuqest
      * @return the first successfully recovered user, <code>null</code> otherwise.
      */
     public LuteceUser getHttpAuthenticatedUser( HttpServletRequest request )
     {
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_HTTP_USER_PARALLEL, false ) )
+        {
+            return getHttpAuthenticatedUserInParallel( request );
+        }
+
         LuteceUser luteceUser = null;
 
-        for ( LuteceAuthentication luteceAuthentication : getListLuteceAuthentication(  ) )
+        for ( HintedAuthentication hintedAuthentication : _registry.getExternalList(  ) )
         {
-            if ( luteceAuthentication.isExternalAuthentication(  ) )
+            if ( hintedAuthentication.isCandidate( request ) )
             {
-                luteceUser = luteceAuthentication.getHttpAuthenticatedUser( request );
+                luteceUser = hintedAuthentication.getAuthentication(  ).getHttpAuthenticatedUser( request );
 
                 if ( luteceUser != null )
                 {
@@ -391,6 +447,97 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
         return luteceUser;
     }
 
+    /**
+     * Probes the external authentications concurrently. Only the authentications declared safe for
+     * the parallel probing are run by the pool : they read an immutable snapshot of the request, as
+     * they may outlive it when they time out. The other ones are probed with the request, in the request
+     * thread, at their turn in priority order. The wait for each probe is bounded by the provider timeout,
+     * and capped by the global deadline of all the probes.
+     * @param request the request
+     * @return the user found by the authentication with the highest priority, <code>null</code> otherwise.
+     */
+    private LuteceUser getHttpAuthenticatedUserInParallel( HttpServletRequest request )
+    {
+        List<HintedAuthentication> listCandidates = new ArrayList<HintedAuthentication>(  );
+        List<HttpAuthenticatedUserProbe> listProbes = new ArrayList<HttpAuthenticatedUserProbe>(  );
+
+        for ( HintedAuthentication hintedAuthentication : _registry.getExternalList(  ) )
+        {
+            if ( hintedAuthentication.isCandidate( request ) )
+            {
+                listCandidates.add( hintedAuthentication );
+
+                if ( hintedAuthentication.isParallelSafe(  ) )
+                {
+                    listProbes.add( new HttpAuthenticatedUserProbe( hintedAuthentication.getAuthentication(  ),
+                            new HttpRequestSnapshot( request ) ) );
+                }
+            }
+        }
+
+        if ( listProbes.size(  ) < 2 )
+        {
+            // Nothing to parallelize
+            for ( HintedAuthentication hintedAuthentication : listCandidates )
+            {
+                LuteceUser luteceUser = hintedAuthentication.getAuthentication(  ).getHttpAuthenticatedUser( request );
+
+                if ( luteceUser != null )
+                {
+                    return luteceUser;
+                }
+            }
+
+            return null;
+        }
+
+        long lProviderTimeout = AppPropertiesService.getPropertyLong( PROPERTY_HTTP_USER_PROVIDER_TIMEOUT,
+                DEFAULT_HTTP_USER_PROVIDER_TIMEOUT );
+        long lDeadline = System.currentTimeMillis(  ) +
+            AppPropertiesService.getPropertyLong( PROPERTY_HTTP_USER_DEADLINE, DEFAULT_HTTP_USER_DEADLINE );
+        List<Future<LuteceUser>> listFutures = MyLuteceExecutorService.getLoginInstance(  ).submitAll( listProbes );
+
+        try
+        {
+            // The results are read in priority order, a lower priority user is only used
+            // if all the authentications before it found nobody
+            int nProbe = 0;
+
+            for ( HintedAuthentication hintedAuthentication : listCandidates )
+            {
+                LuteceUser luteceUser;
+
+                if ( hintedAuthentication.isParallelSafe(  ) )
+                {
+                    HttpAuthenticatedUserProbe probe = listProbes.get( nProbe );
+                    long lTimeLimit = Math.min( System.currentTimeMillis(  ) + lProviderTimeout, lDeadline );
+                    luteceUser = MyLuteceExecutorService.getResult( listFutures.get( nProbe++ ), lTimeLimit );
+
+                    if ( luteceUser != null )
+                    {
+                        probe.getSnapshot(  ).applyWrittenAttributes( request );
+                    }
+                }
+                else
+                {
+                    luteceUser = hintedAuthentication.getAuthentication(  ).getHttpAuthenticatedUser( request );
+                }
+
+                if ( luteceUser != null )
+                {
+                    return luteceUser;
+                }
+            }
+        }
+        finally
+        {
+            // The probes still running are not needed anymore
+            MyLuteceExecutorService.cancelAll( listFutures );
+        }
+
+        return null;
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -410,47 +557,97 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
     /**
      *
      * Tries to get user from any authentication. <br>
-     * Due to huge calculation, this method should not be called often.
+     * The authentication owning the login is looked up in {@link UserAuthenticationIndexService} first,
+     * all the authentications are only queried for unknown logins.
      * @param strUserLogin user login
      * @return the LuteceUser found, <code>null</code> otherwise.
      */
     public LuteceUser getUser( String strUserLogin )
     {
+        UserAuthenticationIndexService index = UserAuthenticationIndexService.getInstance(  );
+        String strAuthenticationName = index.getAuthenticationName( strUserLogin );
+
+        if ( UserAuthenticationIndexService.NO_AUTHENTICATION.equals( strAuthenticationName ) )
+        {
+            return null;
+        }
+
+        List<LuteceAuthentication> listAuthentications = getListLuteceAuthentication(  );
+
+        if ( strAuthenticationName != null )
+        {
+            LuteceAuthentication authentication = getLuteceAuthentication( strAuthenticationName );
+
+            if ( ( authentication != null ) && listAuthentications.contains( authentication ) )
+            {
+                LuteceUser user = authentication.getUser( strUserLogin );
+
+                if ( user != null )
+                {
+                    return user;
+                }
+            }
+
+            // The user has moved or the authentication is no longer available
+            index.remove( strUserLogin );
+        }
+
         // try to get user from any authentication
-        for ( LuteceAuthentication authentication : getListLuteceAuthentication(  ) )
+        for ( LuteceAuthentication authentication : listAuthentications )
         {
             LuteceUser user = authentication.getUser( strUserLogin );
 
             if ( user != null )
             {
+                index.putAuthenticationName( strUserLogin, authentication.getName(  ) );
+
                 return user;
             }
         }
 
+        index.putNoAuthentication( strUserLogin );
+
         return null;
     }
 
     /**
      *
-     * Gets all known users from all authentications.
+     * Gets all known users from all authentications. A user known by several authentications
+     * is returned once for each of them.
+     * Prefer {@link #getUsersIterator(boolean)} for large directories.
      * @return all kown users list.
      */
     public Collection<LuteceUser> getUsers(  )
     {
         List<LuteceUser> listUsers = new ArrayList<LuteceUser>(  );
+        Iterator<LuteceUser> iterator = getUsersIterator( false );
 
-        for ( LuteceAuthentication luteceAuthentication : getListLuteceAuthentication(  ) )
+        while ( iterator.hasNext(  ) )
         {
-        	if( luteceAuthentication.getUsers(  )!= null ){
-        			
-        		listUsers.addAll( luteceAuthentication.getUsers(  ) );
-        	
-        	}
+            listUsers.add( iterator.next(  ) );
         }
 
         return listUsers;
     }
 
+    /**
+     * Gets a lazy iterator over the known users of all authentications.
+     * The users of an authentication are fetched when the iteration reaches it, or concurrently
+     * for all authentications if the parallel mode is enabled. Each authentication provides all its
+     * users at once : they are held in memory while the authentication is iterated, and the users
+     * of all the authentications are held at once in parallel mode.
+     * The iterator must be closed if it is abandoned before its end.
+     * @param bDistinct true to de-duplicate the users by login, keeping the user of the authentication
+     *            with the highest priority ; false to return a user once for each authentication knowing him
+     * @return the iterator
+     */
+    public AggregatedUserIterator getUsersIterator( boolean bDistinct )
+    {
+        return new AggregatedUserIterator( getListLuteceAuthentication(  ), bDistinct,
+            AppPropertiesService.getPropertyBoolean( PROPERTY_USERS_PARALLEL, false ),
+            System.currentTimeMillis(  ) + AppPropertiesService.getPropertyLong( PROPERTY_USERS_TIMEOUT, DEFAULT_USERS_TIMEOUT ) );
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -481,6 +678,41 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
         return false;
     }
 
+    /**
+     * Checks if a user has at least one of some roles, through the authentication of the user
+     * @param user the user
+     * @param roles the role codes
+     * @return true if the user has one of the roles
+     */
+    @Override
+    public boolean isUserInAnyRole( LuteceUser user, Collection<String> roles )
+    {
+        if ( user == null )
+        {
+            return false;
+        }
+
+        LuteceAuthentication authentication = user.getLuteceAuthenticationService(  );
+
+        if ( authentication instanceof AbstractAuthentication )
+        {
+            return ( (AbstractAuthentication) authentication ).isUserInAnyRole( user, roles );
+        }
+
+        if ( authentication != null )
+        {
+            for ( String strRole : roles )
+            {
+                if ( authentication.isUserInRole( user, null, strRole ) )
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      *
      * Returns false. User list should not be directly recovered, due to use CPU usage.
@@ -503,7 +735,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
         if ( strAuthProvider != null )
         {
-            LuteceAuthentication myLuteceAuthentication = _mapAuthentications.get( strAuthProvider );
+            LuteceAuthentication myLuteceAuthentication = getLuteceAuthentication( strAuthProvider );
 
             if ( myLuteceAuthentication != null )
             {
@@ -514,6 +746,12 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
                 }
 
                 luteceUser = myLuteceAuthentication.login( strUserName, strUserPassword, request );
+
+                if ( luteceUser != null )
+                {
+                    UserAuthenticationIndexService.getInstance(  )
+                                                  .putAuthenticationName( strUserName, myLuteceAuthentication.getName(  ) );
+                }
             }
             else
             {
@@ -539,6 +777,9 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
     {
         if ( user != null )
         {
+            UserAttributesCacheService.getInstance(  ).removeUserInfos( user.getName(  ) );
+            ExternalIdentityCacheService.getInstance(  ).evict( user.getName(  ) );
+
             LuteceAuthentication luteceAuthentication = user.getLuteceAuthenticationService(  );
 
             if ( luteceAuthentication != null )
@@ -549,7 +790,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
             {
                 AppLogService.error( "No auth provider found for " + user.getName(  ) + ". Brute force logout." );
 
-                for ( LuteceAuthentication authentication : _mapAuthentications.values(  ) )
+                for ( LuteceAuthentication authentication : _registry.getList(  ) )
                 {
                     authentication.logout( user );
                 }
@@ -577,7 +818,7 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
      */
     public LuteceAuthentication getLuteceAuthentication( String strKey )
     {
-        return _mapAuthentications.get( strKey );
+        return _registry.getMap(  ).get( strKey );
     }
 
     /**
@@ -590,29 +831,14 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
     }
 
     /**
-     * Returns all known security authentication services
-     * @return all known security authentication services
+     * Returns all known security authentication services whose plugin is installed, in priority order.
+     * The authentications listed in the <code>mylutece.authentication.priority</code> property come first,
+     * the other ones follow in registration order.
+     * @return the unmodifiable list of the installed security authentication services
      */
     public List<LuteceAuthentication> getListLuteceAuthentication(  )
     {
-        List<LuteceAuthentication> listAuthentications = new ArrayList<LuteceAuthentication>(  );
-
-        for ( LuteceAuthentication authentication : _mapAuthentications.values(  ) )
-        {
-            Plugin plugin = PluginService.getPlugin( authentication.getPluginName(  ) );
-
-            if ( ( plugin != null ) && plugin.isInstalled(  ) )
-            {
-                listAuthentications.add( authentication );
-            }
-            else if ( AppLogService.isDebugEnabled(  ) )
-            {
-                AppLogService.debug( "Authentication : Plugin not found or not installed for plugin name " +
-                    authentication.getPluginName(  ) );
-            }
-        }
-
-        return listAuthentications;
+        return _registry.getInstalledList(  );
     }
 
     /**
@@ -656,9 +882,239 @@ public class MultiLuteceAuthentication extends AbstractAuthentication
 
             if ( StringUtils.isNotBlank( strAuthentication ) )
             {
-                LuteceAuthentication authentication = _mapAuthentications.get( strAuthentication );
+                LuteceAuthentication authentication = getLuteceAuthentication( strAuthentication );
                 authentication.updateDateLastLogin( user, request );
             }
         }
     }
+
+    /**
+     * Immutable snapshot of the registered authentications
+     */
+    private static final class Registry
+    {
+        private final Map<String, LuteceAuthentication> _mapAuthentications;
+        private final List<LuteceAuthentication> _listAuthentications;
+        private volatile List<LuteceAuthentication> _listInstalledAuthentications;
+        private volatile List<HintedAuthentication> _listExternalAuthentications;
+
+        /**
+         * Constructor
+         * @param mapAuthentications the registered authentications, in registration order. Must not be modified afterwards.
+         */
+        Registry( Map<String, LuteceAuthentication> mapAuthentications )
+        {
+            _mapAuthentications = Collections.unmodifiableMap( mapAuthentications );
+            _listAuthentications = Collections.unmodifiableList( new ArrayList<LuteceAuthentication>( 
+                        mapAuthentications.values(  ) ) );
+        }
+
+        /**
+         * Gets the registered authentications by name
+         * @return the unmodifiable map of the authentications
+         */
+        Map<String, LuteceAuthentication> getMap(  )
+        {
+            return _mapAuthentications;
+        }
+
+        /**
+         * Gets the registered authentications in registration order
+         * @return the unmodifiable list of the authentications
+         */
+        List<LuteceAuthentication> getList(  )
+        {
+            return _listAuthentications;
+        }
+
+        /**
+         * Gets the registered authentications whose plugin is installed, in registration order.
+         * The list is computed once per snapshot.
+         * @return the unmodifiable list of the installed authentications
+         */
+        List<LuteceAuthentication> getInstalledList(  )
+        {
+            List<LuteceAuthentication> listInstalledAuthentications = _listInstalledAuthentications;
+
+            if ( listInstalledAuthentications == null )
+            {
+                listInstalledAuthentications = new ArrayList<LuteceAuthentication>(  );
+
+                for ( LuteceAuthentication authentication : _listAuthentications )
+                {
+                    Plugin plugin = PluginService.getPlugin( authentication.getPluginName(  ) );
+
+                    if ( ( plugin != null ) && plugin.isInstalled(  ) )
+                    {
+                        listInstalledAuthentications.add( authentication );
+                    }
+                    else if ( AppLogService.isDebugEnabled(  ) )
+                    {
+                        AppLogService.debug( "Authentication : Plugin not found or not installed for plugin name " +
+                            authentication.getPluginName(  ) );
+                    }
+                }
+
+                listInstalledAuthentications = Collections.unmodifiableList( sortByPriority( 
+                            listInstalledAuthentications ) );
+                _listInstalledAuthentications = listInstalledAuthentications;
+            }
+
+            return listInstalledAuthentications;
+        }
+
+        /**
+         * Gets the installed external authentications with their hint, in priority order.
+         * The list is computed once per snapshot.
+         * @return the unmodifiable list of the installed external authentications
+         */
+        List<HintedAuthentication> getExternalList(  )
+        {
+            List<HintedAuthentication> listExternalAuthentications = _listExternalAuthentications;
+
+            if ( listExternalAuthentications == null )
+            {
+                listExternalAuthentications = new ArrayList<HintedAuthentication>(  );
+
+                for ( LuteceAuthentication authentication : getInstalledList(  ) )
+                {
+                    if ( authentication.isExternalAuthentication(  ) )
+                    {
+                        listExternalAuthentications.add( new HintedAuthentication( authentication,
+                                PropertyHttpAuthenticationHint.getHint( authentication ) ) );
+                    }
+                }
+
+                listExternalAuthentications = Collections.unmodifiableList( listExternalAuthentications );
+                _listExternalAuthentications = listExternalAuthentications;
+            }
+
+            return listExternalAuthentications;
+        }
+    }
+
+    /**
+     * Sorts authentications according to the priority property
+     * @param listAuthentications the authentications, in registration order
+     * @return the authentications in priority order
+     */
+    private static List<LuteceAuthentication> sortByPriority( List<LuteceAuthentication> listAuthentications )
+    {
+        String strPriority = AppPropertiesService.getProperty( PROPERTY_AUTHENTICATION_PRIORITY );
+
+        if ( StringUtils.isBlank( strPriority ) )
+        {
+            return listAuthentications;
+        }
+
+        List<LuteceAuthentication> listRemaining = new ArrayList<LuteceAuthentication>( listAuthentications );
+        List<LuteceAuthentication> listSorted = new ArrayList<LuteceAuthentication>( listAuthentications.size(  ) );
+
+        for ( String strName : strPriority.split( CONSTANT_COMMA ) )
+        {
+            for ( int i = 0; i < listRemaining.size(  ); i++ )
+            {
+                if ( strName.trim(  ).equals( listRemaining.get( i ).getName(  ) ) )
+                {
+                    listSorted.add( listRemaining.remove( i ) );
+
+                    break;
+                }
+            }
+        }
+
+        listSorted.addAll( listRemaining );
+
+        return listSorted;
+    }
+
+    /**
+     * Probe of an external authentication, run by the pool of the parallel mode
+     */
+    private static final class HttpAuthenticatedUserProbe implements Callable<LuteceUser>
+    {
+        private final LuteceAuthentication _authentication;
+        private final HttpRequestSnapshot _snapshot;
+
+        /**
+         * Constructor
+         * @param authentication the authentication to probe
+         * @param snapshot the snapshot of the request
+         */
+        HttpAuthenticatedUserProbe( LuteceAuthentication authentication, HttpRequestSnapshot snapshot )
+        {
+            _authentication = authentication;
+            _snapshot = snapshot;
+        }
+
+        /**
+         * Gets the snapshot of the request read by the probe
+         * @return the snapshot
+         */
+        HttpRequestSnapshot getSnapshot(  )
+        {
+            return _snapshot;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public LuteceUser call(  )
+        {
+            return _authentication.getHttpAuthenticatedUser( _snapshot.getRequest(  ) );
+        }
+    }
+
+    /**
+     * External authentication with its optional hint
+     */
+    private static final class HintedAuthentication
+    {
+        private final LuteceAuthentication _authentication;
+        private final IHttpAuthenticationHint _hint;
+        private final boolean _bParallelSafe;
+
+        /**
+         * Constructor
+         * @param authentication the authentication
+         * @param hint the hint, or null if the authentication must always be probed
+         */
+        HintedAuthentication( LuteceAuthentication authentication, IHttpAuthenticationHint hint )
+        {
+            _authentication = authentication;
+            _hint = hint;
+            _bParallelSafe = ( authentication.getName(  ) != null ) &&
+                AppPropertiesService.getPropertyBoolean( PROPERTY_PREFIX_AUTHENTICATION + authentication.getName(  ) +
+                    PROPERTY_SUFFIX_HTTP_USER_PARALLEL_SAFE, false );
+        }
+
+        /**
+         * Tells whether the authentication can be probed by the pool, with a snapshot of the request.
+         * @return true if the authentication is declared safe for the parallel probing
+         */
+        boolean isParallelSafe(  )
+        {
+            return _bParallelSafe;
+        }
+
+        /**
+         * Gets the authentication
+         * @return the authentication
+         */
+        LuteceAuthentication getAuthentication(  )
+        {
+            return _authentication;
+        }
+
+        /**
+         * Tells whether the authentication must be probed for a request
+         * @param request the request
+         * @return true if the authentication has no hint or if its hint accepts the request
+         */
+        boolean isCandidate( HttpServletRequest request )
+        {
+            return ( _hint == null ) || _hint.isHttpAuthenticationCandidate( request );
+        }
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.authentication;
+
+import fr.paris.lutece.portal.service.security.LuteceAuthentication;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import org.apache.commons.lang.StringUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+
+/**
+ * Hint of an external authentication, configured in the properties :
+ * <ul>
+ * <li><code>mylutece.authentication.&lt;name&gt;.hint.headers</code> : names of the request headers</li>
+ * <li><code>mylutece.authentication.&lt;name&gt;.hint.cookies</code> : names of the cookies</li>
+ * <li><code>mylutece.authentication.&lt;name&gt;.hint.pathPrefixes</code> : prefixes of the servlet path</li>
+ * </ul>
+ * Values are separated by commas. A request is a candidate if it matches any of the values.
+ */
+final class PropertyHttpAuthenticationHint implements IHttpAuthenticationHint
+{
+    private static final String PROPERTY_PREFIX = "mylutece.authentication.";
+    private static final String PROPERTY_SUFFIX_HEADERS = ".hint.headers";
+    private static final String PROPERTY_SUFFIX_COOKIES = ".hint.cookies";
+    private static final String PROPERTY_SUFFIX_PATH_PREFIXES = ".hint.pathPrefixes";
+    private static final String CONSTANT_COMMA = ",";
+    private final String[] _arrayHeaders;
+    private final String[] _arrayCookies;
+    private final String[] _arrayPathPrefixes;
+
+    /**
+     * Constructor
+     * @param arrayHeaders the header names
+     * @param arrayCookies the cookie names
+     * @param arrayPathPrefixes the path prefixes
+     */
+    private PropertyHttpAuthenticationHint( String[] arrayHeaders, String[] arrayCookies, String[] arrayPathPrefixes )
+    {
+        _arrayHeaders = arrayHeaders;
+        _arrayCookies = arrayCookies;
+        _arrayPathPrefixes = arrayPathPrefixes;
+    }
+
+    /**
+     * Gets the hint of an authentication
+     * @param authentication the authentication
+     * @return the hint implemented by the authentication, or the hint configured in the properties,
+     * or null if the authentication has no hint
+     */
+    static IHttpAuthenticationHint getHint( LuteceAuthentication authentication )
+    {
+        if ( authentication instanceof IHttpAuthenticationHint )
+        {
+            return (IHttpAuthenticationHint) authentication;
+        }
+
+        String strName = authentication.getName(  );
+
+        if ( strName == null )
+        {
+            return null;
+        }
+
+        String[] arrayHeaders = getValues( strName, PROPERTY_SUFFIX_HEADERS );
+        String[] arrayCookies = getValues( strName, PROPERTY_SUFFIX_COOKIES );
+        String[] arrayPathPrefixes = getValues( strName, PROPERTY_SUFFIX_PATH_PREFIXES );
+
+        if ( ( arrayHeaders.length == 0 ) && ( arrayCookies.length == 0 ) && ( arrayPathPrefixes.length == 0 ) )
+        {
+            return null;
+        }
+
+        return new PropertyHttpAuthenticationHint( arrayHeaders, arrayCookies, arrayPathPrefixes );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isHttpAuthenticationCandidate( HttpServletRequest request )
+    {
+        for ( String strHeader : _arrayHeaders )
+        {
+            if ( request.getHeader( strHeader ) != null )
+            {
+                return true;
+            }
+        }
+
+        if ( ( _arrayCookies.length > 0 ) && ( request.getCookies(  ) != null ) )
+        {
+            for ( Cookie cookie : request.getCookies(  ) )
+            {
+                for ( String strCookie : _arrayCookies )
+                {
+                    if ( strCookie.equals( cookie.getName(  ) ) )
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        String strServletPath = request.getServletPath(  );
+
+        if ( strServletPath != null )
+        {
+            for ( String strPathPrefix : _arrayPathPrefixes )
+            {
+                if ( strServletPath.startsWith( strPathPrefix ) )
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads a list of values from the properties
+     * @param strName the authentication name
+     * @param strSuffix the property suffix
+     * @return the values, without blanks
+     */
+    private static String[] getValues( String strName, String strSuffix )
+    {
+        String strValues = AppPropertiesService.getProperty( PROPERTY_PREFIX + strName + strSuffix );
+
+        if ( StringUtils.isBlank( strValues ) )
+        {
+            return new String[0];
+        }
+
+        return StringUtils.stripAll( StringUtils.split( strValues, CONSTANT_COMMA ) );
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.authentication;
+
+import fr.paris.lutece.plugins.mylutece.service.RoleDictionary;
+import fr.paris.lutece.portal.service.security.LuteceUser;
+
+
+
+/**
+ * Roles of the users encoded as bitsets over the {@link RoleDictionary}, so that role checks don't
+ * scan the role array of the user and don't allocate. A bitset is rebuilt only when the role array
+ * of the user is replaced, which is what {@link LuteceUser#setRoles(String[])} and
+ * {@link LuteceUser#addRoles(java.util.Collection)} do. The bitsets are released with the users,
+ * and looking them up neither locks nor allocates.
+ */
+final class UserRoleSets
+{
+    private static final ConcurrentWeakIdentityMap<LuteceUser, RoleSet> _mapRoleSets = new ConcurrentWeakIdentityMap<LuteceUser, RoleSet>(  );
+
+    /**
+     * Private constructor
+     */
+    private UserRoleSets(  )
+    {
+    }
+
+    /**
+     * Tells whether a user has a role
+     * @param user the user
+     * @param strRole the role code
+     * @return true if the user has the role
+     */
+    static boolean isUserInRole( LuteceUser user, String strRole )
+    {
+        return RoleDictionary.contains( getBitSet( user ), RoleDictionary.getInstance(  ).getId( strRole ) );
+    }
+
+    /**
+     * Tells whether a user has at least one of some roles
+     * @param user the user
+     * @param mask the roles, encoded by {@link RoleDictionary#getMask(java.util.Collection)}
+     * @return true if the user has one of the roles
+     */
+    static boolean isUserInAnyRole( LuteceUser user, long[] mask )
+    {
+        return RoleDictionary.intersects( getBitSet( user ), mask );
+    }
+
+    /**
+     * Gets the role bitset of a user
+     * @param user the user
+     * @return the bitset
+     */
+    private static long[] getBitSet( LuteceUser user )
+    {
+        String[] arrayRoles = user.getRoles(  );
+        RoleSet roleSet = _mapRoleSets.get( user );
+
+        if ( ( roleSet == null ) || ( roleSet._arrayRoles != arrayRoles ) )
+        {
+            roleSet = new RoleSet( arrayRoles, RoleDictionary.getInstance(  ).toBitSet( arrayRoles ) );
+            _mapRoleSets.put( user, roleSet );
+        }
+
+        return roleSet._bitSet;
+    }
+
+    /**
+     * Role bitset built from a role array
+     */
+    private static final class RoleSet
+    {
+        private final String[] _arrayRoles;
+        private final long[] _bitSet;
+
+        /**
+         * Constructor
+         * @param arrayRoles the role array of the user
+         * @param bitSet the bitset of the roles
+         */
+        RoleSet( String[] arrayRoles, long[] bitSet )
+        {
+            _arrayRoles = arrayRoles;
+            _bitSet = bitSet;
+        }
+    }
+}
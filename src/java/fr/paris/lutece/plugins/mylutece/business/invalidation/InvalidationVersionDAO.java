@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.business.invalidation;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * This class provides Data Access methods for the invalidation version counters
+ */
+public final class InvalidationVersionDAO implements IInvalidationVersionDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT_VERSIONS = " SELECT topic, version FROM mylutece_invalidation_version ";
+    private static final String SQL_QUERY_SELECT_VERSION = " SELECT version FROM mylutece_invalidation_version WHERE topic = ? ";
+    private static final String SQL_QUERY_INCREMENT_VERSION = " UPDATE mylutece_invalidation_version SET version = version + 1 WHERE topic = ? ";
+    private static final String SQL_QUERY_INSERT_VERSION = " INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( ?, 1 ) ";
+
+    /**
+     * {@inheritDoc}
+     * The increment and the read of the new version are done in one transaction : the row
+     * of the topic stays locked by the update, so that two nodes never read the same version.
+     */
+    @Override
+    public long incrementVersion( String strTopic, Plugin plugin )
+    {
+        TransactionManager.beginTransaction( plugin );
+
+        try
+        {
+            DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_VERSION, plugin );
+            daoUtil.setString( 1, strTopic );
+            daoUtil.executeUpdate(  );
+            daoUtil.free(  );
+
+            daoUtil = new DAOUtil( SQL_QUERY_SELECT_VERSION, plugin );
+            daoUtil.setString( 1, strTopic );
+            daoUtil.executeQuery(  );
+
+            long lVersion = 0;
+
+            if ( daoUtil.next(  ) )
+            {
+                lVersion = daoUtil.getLong( 1 );
+            }
+
+            daoUtil.free(  );
+
+            if ( lVersion == 0 )
+            {
+                // The topics of the plugin are created by the SQL scripts : this one is new
+                daoUtil = new DAOUtil( SQL_QUERY_INSERT_VERSION, plugin );
+                daoUtil.setString( 1, strTopic );
+                daoUtil.executeUpdate(  );
+                daoUtil.free(  );
+                lVersion = 1;
+            }
+
+            TransactionManager.commitTransaction( plugin );
+
+            return lVersion;
+        }
+        catch ( RuntimeException e )
+        {
+            TransactionManager.rollBack( plugin );
+
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> selectVersions( Plugin plugin )
+    {
+        Map<String, Long> mapVersions = new HashMap<String, Long>(  );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_VERSIONS, plugin );
+        daoUtil.executeQuery(  );
+
+        while ( daoUtil.next(  ) )
+        {
+            mapVersions.put( daoUtil.getString( 1 ), daoUtil.getLong( 2 ) );
+        }
+
+        daoUtil.free(  );
+
+        return mapVersions;
+    }
+}
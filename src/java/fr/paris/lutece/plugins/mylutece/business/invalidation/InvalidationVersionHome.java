@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.business.invalidation;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.util.Map;
+
+
+/**
+ * This class provides instances management methods for the invalidation version counters
+ */
+public final class InvalidationVersionHome
+{
+    // Static variable pointed at the DAO instance
+    private static IInvalidationVersionDAO _dao = SpringContextService.getBean( "mylutece.invalidationVersionDAO" );
+
+    /**
+     * Private constructor
+     */
+    private InvalidationVersionHome(  )
+    {
+    }
+
+    /**
+     * Increments the version of a topic
+     * @param strTopic The topic
+     * @param plugin The plugin
+     * @return The new version of the topic
+     */
+    public static long incrementVersion( String strTopic, Plugin plugin )
+    {
+        return _dao.incrementVersion( strTopic, plugin );
+    }
+
+    /**
+     * Get the versions of all the topics
+     * @param plugin The plugin
+     * @return The versions of the topics, by topic
+     */
+    public static Map<String, Long> getVersions( Plugin plugin )
+    {
+        return _dao.selectVersions( plugin );
+    }
+}
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.mylutece.business.portlet;
 
 import fr.paris.lutece.plugins.mylutece.authentication.MultiLuteceAuthentication;
+import fr.paris.lutece.plugins.mylutece.service.security.UserLookupService;
 import fr.paris.lutece.portal.business.portlet.Portlet;
 import fr.paris.lutece.portal.service.security.LuteceAuthentication;
 import fr.paris.lutece.portal.service.security.LuteceUser;
@@ -97,7 +98,7 @@ public class MyLutecePortlet extends Portlet
             return sbXml.toString(  );
         }
 
-        LuteceUser user = ( request == null ) ? null : SecurityService.getInstance(  ).getRegisteredUser( request );
+        LuteceUser user = ( request == null ) ? null : UserLookupService.getRegisteredUser( request );
 
         XmlUtil.beginElement( sbXml, TAG_MY_LUTECE_PORTLET );
 
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+import java.io.Serializable;
+
+
+/**
+ * Cacheable service whose entries can expire on their own, independently of the
+ * configuration of the cache. Useful to keep negative results for a short time only.
+ */
+public abstract class AbstractExpiringCacheService extends AbstractCacheableService
+{
+    /**
+     * Gets an object from the cache, if it has not expired
+     * @param strKey the key
+     * @return the object, or null if it is not in cache or has expired
+     */
+    protected Object getUnexpiredFromCache( String strKey )
+    {
+        Object object = getFromCache( strKey );
+
+        if ( object instanceof ExpiringEntry )
+        {
+            ExpiringEntry entry = (ExpiringEntry) object;
+
+            if ( entry._lExpiration > System.currentTimeMillis(  ) )
+            {
+                return entry._value;
+            }
+
+            removeKey( strKey );
+
+            return null;
+        }
+
+        return object;
+    }
+
+    /**
+     * Puts an object in the cache for a limited time
+     * @param strKey the key
+     * @param value the object
+     * @param lTimeToLive the time to live, in milliseconds
+     */
+    protected void putInCache( String strKey, Object value, long lTimeToLive )
+    {
+        putInCache( strKey, new ExpiringEntry( value, System.currentTimeMillis(  ) + lTimeToLive ) );
+    }
+
+    /**
+     * Entry with an expiration time
+     */
+    private static final class ExpiringEntry implements Serializable
+    {
+        private static final long serialVersionUID = 4712809617251950438L;
+        private final Object _value;
+        private final long _lExpiration;
+
+        /**
+         * Constructor
+         * @param value the cached object
+         * @param lExpiration the expiration time, in milliseconds since the epoch
+         */
+        ExpiringEntry( Object value, long lExpiration )
+        {
+            _value = value;
+            _lExpiration = lExpiration;
+        }
+    }
+}
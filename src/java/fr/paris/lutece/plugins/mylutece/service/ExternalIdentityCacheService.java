@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Cache of the identity informations provided by the external identity service, per user name. <br>
+ * Entries expire after <code>mylutece.identity.cache.ttl</code> seconds. When an entry older than
+ * <code>mylutece.identity.cache.refreshAhead</code> percent of its time to live is read, it is still
+ * returned but reloaded in the background, so that active users never wait for the identity provider.
+ * The number of entries is bounded by the Lutece configuration of the cache.
+ */
+public final class ExternalIdentityCacheService extends AbstractExpiringCacheService
+{
+    private static final String SERVICE_NAME = "MyLutece External Identity Cache Service";
+    private static final String PROPERTY_TTL = "mylutece.identity.cache.ttl";
+    private static final String PROPERTY_REFRESH_AHEAD = "mylutece.identity.cache.refreshAhead";
+    private static final int DEFAULT_TTL = 300;
+    private static final int DEFAULT_REFRESH_AHEAD = 80;
+    private static final int PERCENT = 100;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static ExternalIdentityCacheService _singleton;
+    private final Set<String> _setRefreshing = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>(  ) );
+    private final AtomicLong _lHits = new AtomicLong(  );
+    private final AtomicLong _lMisses = new AtomicLong(  );
+    private final AtomicLong _lRefreshes = new AtomicLong(  );
+    private final AtomicLong _lEvictions = new AtomicLong(  );
+
+    /**
+     * Private constructor
+     */
+    private ExternalIdentityCacheService(  )
+    {
+        initCache(  );
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static synchronized ExternalIdentityCacheService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new ExternalIdentityCacheService(  );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName(  )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Gets the identity informations of a user, from the cache or from the external identity service.
+     * The returned map must not be modified.
+     * @param strUserName the user name
+     * @return the identity informations
+     */
+    public Map<String, String> getIdentityInformations( String strUserName )
+    {
+        long lTimeToLive = getTimeToLive(  );
+
+        if ( ( lTimeToLive <= 0 ) || ( strUserName == null ) || !isCacheEnable(  ) )
+        {
+            return MyLuteceExternalIdentityService.getInstance(  ).getIdentityInformations( strUserName );
+        }
+
+        IdentityEntry entry = (IdentityEntry) getUnexpiredFromCache( strUserName );
+
+        if ( entry == null )
+        {
+            _lMisses.incrementAndGet(  );
+
+            return load( strUserName, lTimeToLive );
+        }
+
+        _lHits.incrementAndGet(  );
+
+        long lRefreshAge = ( lTimeToLive *
+            AppPropertiesService.getPropertyInt( PROPERTY_REFRESH_AHEAD, DEFAULT_REFRESH_AHEAD ) ) / PERCENT;
+
+        if ( ( System.currentTimeMillis(  ) - entry._lLoadingTime ) > lRefreshAge )
+        {
+            refresh( strUserName, lTimeToLive );
+        }
+
+        return entry._mapIdentityInformations;
+    }
+
+    /**
+     * Removes the identity informations of a user from the cache
+     * @param strUserName the user name
+     */
+    public void evict( String strUserName )
+    {
+        if ( strUserName != null )
+        {
+            removeKey( strUserName );
+            _lEvictions.incrementAndGet(  );
+        }
+    }
+
+    /**
+     * Removes all the identity informations from the cache
+     */
+    public void evictAll(  )
+    {
+        resetCache(  );
+        _lEvictions.incrementAndGet(  );
+    }
+
+    /**
+     * Gets the number of reads served by the cache
+     * @return the number of hits
+     */
+    public long getHitCount(  )
+    {
+        return _lHits.get(  );
+    }
+
+    /**
+     * Gets the number of reads that called the identity service
+     * @return the number of misses
+     */
+    public long getMissCount(  )
+    {
+        return _lMisses.get(  );
+    }
+
+    /**
+     * Gets the number of background reloads
+     * @return the number of refreshes
+     */
+    public long getRefreshCount(  )
+    {
+        return _lRefreshes.get(  );
+    }
+
+    /**
+     * Gets the number of explicit evictions
+     * @return the number of evictions
+     */
+    public long getEvictionCount(  )
+    {
+        return _lEvictions.get(  );
+    }
+
+    /**
+     * Loads the identity informations of a user and puts them in cache
+     * @param strUserName the user name
+     * @param lTimeToLive the time to live of the entry, in milliseconds
+     * @return the identity informations
+     */
+    private Map<String, String> load( String strUserName, long lTimeToLive )
+    {
+        Map<String, String> mapIdentityInformations = MyLuteceExternalIdentityService.getInstance(  )
+                                                                                      .getIdentityInformations( strUserName );
+        HashMap<String, String> mapCopy = ( mapIdentityInformations != null )
+            ? new HashMap<String, String>( mapIdentityInformations ) : new HashMap<String, String>(  );
+        putInCache( strUserName, new IdentityEntry( mapCopy ), lTimeToLive );
+
+        return mapCopy;
+    }
+
+    /**
+     * Reloads the identity informations of a user in the background, unless it is already being reloaded
+     * @param strUserName the user name
+     * @param lTimeToLive the time to live of the entry, in milliseconds
+     */
+    private void refresh( final String strUserName, final long lTimeToLive )
+    {
+        if ( !_setRefreshing.add( strUserName ) )
+        {
+            return;
+        }
+
+        boolean bSubmitted = MyLuteceExecutorService.getInstance(  ).execute( new Runnable(  )
+            {
+                @Override
+                public void run(  )
+                {
+                    try
+                    {
+                        load( strUserName, lTimeToLive );
+                        _lRefreshes.incrementAndGet(  );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        AppLogService.error( "MyLutece : unable to refresh the identity of " + strUserName, e );
+                    }
+                    finally
+                    {
+                        _setRefreshing.remove( strUserName );
+                    }
+                }
+            } );
+
+        if ( !bSubmitted )
+        {
+            // The stale entry is served until the pool accepts a refresh
+            _setRefreshing.remove( strUserName );
+        }
+    }
+
+    /**
+     * Gets the time to live of the entries
+     * @return the time to live, in milliseconds
+     */
+    private static long getTimeToLive(  )
+    {
+        return AppPropertiesService.getPropertyInt( PROPERTY_TTL, DEFAULT_TTL ) * MILLISECONDS_PER_SECOND;
+    }
+
+    /**
+     * Cached identity informations
+     */
+    private static final class IdentityEntry implements Serializable
+    {
+        private static final long serialVersionUID = -5902618403741135842L;
+        private final HashMap<String, String> _mapIdentityInformations;
+        private final long _lLoadingTime;
+
+        /**
+         * Constructor
+         * @param mapIdentityInformations the identity informations
+         */
+        IdentityEntry( HashMap<String, String> mapIdentityInformations )
+        {
+            _mapIdentityInformations = mapIdentityInformations;
+            _lLoadingTime = System.currentTimeMillis(  );
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.service.security.LuteceUser;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Collects the roles given to a user by the {@link IMyLuteceExternalRolesProvider} beans. <br>
+ * By default the providers are called one after the other. In parallel mode, they are called
+ * concurrently within a deadline, and each provider has a circuit breaker : after several consecutive
+ * failures or timeouts, the provider is skipped for a while. Then a single trial call is let through :
+ * the provider is called again by everyone if it succeeds, and skipped again if it fails. The last roles known for a user can then be
+ * served from the cache of this service instead.
+ */
+public final class ExternalRolesProviderService extends AbstractExpiringCacheService
+{
+    private static final String SERVICE_NAME = "MyLutece External Roles Cache Service";
+    private static final String PROPERTY_PARALLEL = "mylutece.roles.providers.parallel";
+    private static final String PROPERTY_DEADLINE = "mylutece.roles.providers.deadline";
+    private static final String PROPERTY_FAILURES_THRESHOLD = "mylutece.roles.providers.circuitBreaker.failures";
+    private static final String PROPERTY_OPEN_TIME = "mylutece.roles.providers.circuitBreaker.openTime";
+    private static final String PROPERTY_LAST_KNOWN_ROLES_TTL = "mylutece.roles.providers.lastKnownRoles.ttl";
+    private static final long DEFAULT_DEADLINE = 1000L;
+    private static final int DEFAULT_FAILURES_THRESHOLD = 3;
+    private static final int DEFAULT_OPEN_TIME = 60;
+    private static final int DEFAULT_LAST_KNOWN_ROLES_TTL = 0;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static final String KEY_SEPARATOR = "|";
+    private static ExternalRolesProviderService _singleton;
+    private volatile RolesProvider[] _arrayRolesProviders;
+
+    /**
+     * Private constructor
+     */
+    private ExternalRolesProviderService(  )
+    {
+        initCache(  );
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static synchronized ExternalRolesProviderService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new ExternalRolesProviderService(  );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName(  )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Gets the roles given to a user by all the roles providers
+     * @param user the user
+     * @return the roles
+     */
+    public Set<String> getRoles( LuteceUser user )
+    {
+        RolesProvider[] arrayRolesProviders = getRolesProviders(  );
+        Set<String> setRoles = new HashSet<String>(  );
+
+        if ( ( arrayRolesProviders.length < 2 ) || !AppPropertiesService.getPropertyBoolean( PROPERTY_PARALLEL, false ) )
+        {
+            for ( RolesProvider rolesProvider : arrayRolesProviders )
+            {
+                setRoles.addAll( rolesProvider._provider.providesRoles( user ) );
+            }
+
+            return setRoles;
+        }
+
+        long lNow = System.currentTimeMillis(  );
+        long lDeadline = lNow + AppPropertiesService.getPropertyLong( PROPERTY_DEADLINE, DEFAULT_DEADLINE );
+        List<RolesProvider> listCalledProviders = new ArrayList<RolesProvider>( arrayRolesProviders.length );
+        List<RolesFetch> listFetches = new ArrayList<RolesFetch>( arrayRolesProviders.length );
+
+        for ( RolesProvider rolesProvider : arrayRolesProviders )
+        {
+            if ( rolesProvider._circuitBreaker.allowsCall( lNow ) )
+            {
+                listCalledProviders.add( rolesProvider );
+                listFetches.add( new RolesFetch( rolesProvider._provider, user ) );
+            }
+            else
+            {
+                addLastKnownRoles( setRoles, rolesProvider, user );
+            }
+        }
+
+        List<Future<Collection<String>>> listFutures = MyLuteceExecutorService.getInstance(  ).submitAll( listFetches );
+
+        for ( int i = 0; i < listFutures.size(  ); i++ )
+        {
+            RolesProvider rolesProvider = listCalledProviders.get( i );
+            Future<Collection<String>> future = listFutures.get( i );
+
+            try
+            {
+                Collection<String> roles = future.get( Math.max( 0L, lDeadline - System.currentTimeMillis(  ) ),
+                        TimeUnit.MILLISECONDS );
+                rolesProvider._circuitBreaker.recordSuccess(  );
+
+                if ( roles != null )
+                {
+                    setRoles.addAll( roles );
+                    putLastKnownRoles( rolesProvider, user, roles );
+                }
+            }
+            catch ( TimeoutException e )
+            {
+                future.cancel( true );
+                AppLogService.error( "MyLutece : roles provider " + rolesProvider._strName + " timed out for user " +
+                    user.getName(  ) );
+                onFailure( setRoles, rolesProvider, user );
+            }
+            catch ( ExecutionException e )
+            {
+                if ( MyLuteceExecutorService.isRejected( e ) )
+                {
+                    // A saturated pool is not a failure of the provider
+                    rolesProvider._circuitBreaker.cancelTrial(  );
+                    addLastKnownRoles( setRoles, rolesProvider, user );
+
+                    continue;
+                }
+
+                AppLogService.error( "MyLutece : roles provider " + rolesProvider._strName + " failed for user " +
+                    user.getName(  ), e.getCause(  ) );
+                onFailure( setRoles, rolesProvider, user );
+            }
+            catch ( InterruptedException e )
+            {
+                MyLuteceExecutorService.cancelAll( listFutures );
+                Thread.currentThread(  ).interrupt(  );
+                rolesProvider._circuitBreaker.cancelTrial(  );
+                addLastKnownRoles( setRoles, rolesProvider, user );
+            }
+        }
+
+        return setRoles;
+    }
+
+    /**
+     * Forgets the roles providers, so that they are looked up again in the Spring context.
+     * Should be called when a plugin is installed or uninstalled.
+     */
+    public void refreshProviders(  )
+    {
+        _arrayRolesProviders = null;
+    }
+
+    /**
+     * Gets the roles providers. The Spring context is only scanned once, until {@link #refreshProviders()} is called.
+     * @return the roles providers
+     */
+    private RolesProvider[] getRolesProviders(  )
+    {
+        RolesProvider[] arrayRolesProviders = _arrayRolesProviders;
+
+        if ( arrayRolesProviders == null )
+        {
+            List<IMyLuteceExternalRolesProvider> listProviders = SpringContextService.getBeansOfType( IMyLuteceExternalRolesProvider.class );
+            arrayRolesProviders = new RolesProvider[listProviders.size(  )];
+
+            for ( int i = 0; i < arrayRolesProviders.length; i++ )
+            {
+                arrayRolesProviders[i] = new RolesProvider( listProviders.get( i ) );
+            }
+
+            _arrayRolesProviders = arrayRolesProviders;
+        }
+
+        return arrayRolesProviders;
+    }
+
+    /**
+     * Records a failure of a provider and serves its last known roles
+     * @param setRoles the roles being collected
+     * @param rolesProvider the provider
+     * @param user the user
+     */
+    private void onFailure( Set<String> setRoles, RolesProvider rolesProvider, LuteceUser user )
+    {
+        int nThreshold = AppPropertiesService.getPropertyInt( PROPERTY_FAILURES_THRESHOLD, DEFAULT_FAILURES_THRESHOLD );
+        long lOpenTime = AppPropertiesService.getPropertyInt( PROPERTY_OPEN_TIME, DEFAULT_OPEN_TIME ) * MILLISECONDS_PER_SECOND;
+
+        if ( rolesProvider._circuitBreaker.recordFailure( nThreshold, lOpenTime ) )
+        {
+            AppLogService.error( "MyLutece : roles provider " + rolesProvider._strName + " is skipped for " +
+                ( lOpenTime / MILLISECONDS_PER_SECOND ) + " seconds after " + nThreshold + " failures" );
+        }
+
+        addLastKnownRoles( setRoles, rolesProvider, user );
+    }
+
+    /**
+     * Adds the last roles known for a user, if any
+     * @param setRoles the roles being collected
+     * @param rolesProvider the provider
+     * @param user the user
+     */
+    @SuppressWarnings( "unchecked" )
+    private void addLastKnownRoles( Set<String> setRoles, RolesProvider rolesProvider, LuteceUser user )
+    {
+        Collection<String> roles = (Collection<String>) getUnexpiredFromCache( rolesProvider._strName +
+                KEY_SEPARATOR + user.getName(  ) );
+
+        if ( roles != null )
+        {
+            setRoles.addAll( roles );
+        }
+    }
+
+    /**
+     * Keeps the roles given to a user by a provider
+     * @param rolesProvider the provider
+     * @param user the user
+     * @param roles the roles
+     */
+    private void putLastKnownRoles( RolesProvider rolesProvider, LuteceUser user, Collection<String> roles )
+    {
+        long lTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_LAST_KNOWN_ROLES_TTL,
+                DEFAULT_LAST_KNOWN_ROLES_TTL ) * MILLISECONDS_PER_SECOND;
+
+        if ( lTimeToLive > 0 )
+        {
+            putInCache( rolesProvider._strName + KEY_SEPARATOR + user.getName(  ), new HashSet<String>( roles ),
+                lTimeToLive );
+        }
+    }
+
+    /**
+     * Roles provider with its circuit breaker
+     */
+    private static final class RolesProvider
+    {
+        private final IMyLuteceExternalRolesProvider _provider;
+        private final String _strName;
+        private final CircuitBreaker _circuitBreaker = new CircuitBreaker(  );
+
+        /**
+         * Constructor
+         * @param provider the provider
+         */
+        RolesProvider( IMyLuteceExternalRolesProvider provider )
+        {
+            _provider = provider;
+            _strName = provider.getClass(  ).getName(  );
+        }
+    }
+
+    /**
+     * Circuit breaker : opened after consecutive failures. Once the open time is over, it is
+     * half open : a single trial call is let through, the other calls are still refused until
+     * the trial closes the circuit if it succeeds, or opens it again if it fails.
+     */
+    private static final class CircuitBreaker
+    {
+        private static final int STATE_CLOSED = 0;
+        private static final int STATE_OPEN = 1;
+        private static final int STATE_HALF_OPEN = 2;
+        private final AtomicInteger _nState = new AtomicInteger( STATE_CLOSED );
+        private final AtomicInteger _nConsecutiveFailures = new AtomicInteger(  );
+        private volatile long _lOpenUntil;
+
+        /**
+         * Tells whether the provider may be called. When the open time is over, only
+         * the first caller gets the trial call.
+         * @param lNow the current time
+         * @return true if the circuit is closed, or if the caller got the trial call
+         */
+        boolean allowsCall( long lNow )
+        {
+            switch ( _nState.get(  ) )
+            {
+                case STATE_CLOSED:
+                    return true;
+
+                case STATE_OPEN:
+                    return ( lNow >= _lOpenUntil ) && _nState.compareAndSet( STATE_OPEN, STATE_HALF_OPEN );
+
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Records a successful call, which closes the circuit
+         */
+        void recordSuccess(  )
+        {
+            _nConsecutiveFailures.set( 0 );
+            _nState.set( STATE_CLOSED );
+        }
+
+        /**
+         * Gives the trial call back when it has not been done, so that the next caller gets it
+         */
+        void cancelTrial(  )
+        {
+            _nState.compareAndSet( STATE_HALF_OPEN, STATE_OPEN );
+        }
+
+        /**
+         * Records a failed call
+         * @param nThreshold the number of consecutive failures opening the circuit
+         * @param lOpenTime the time during which the circuit stays open, in milliseconds
+         * @return true if the circuit has just been opened
+         */
+        boolean recordFailure( int nThreshold, long lOpenTime )
+        {
+            if ( ( _nState.get(  ) == STATE_HALF_OPEN ) || ( _nConsecutiveFailures.incrementAndGet(  ) >= nThreshold ) )
+            {
+                _nConsecutiveFailures.set( nThreshold - 1 );
+                _lOpenUntil = System.currentTimeMillis(  ) + lOpenTime;
+                _nState.set( STATE_OPEN );
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Call of a roles provider, run by the pool in parallel mode
+     */
+    private static final class RolesFetch implements Callable<Collection<String>>
+    {
+        private final IMyLuteceExternalRolesProvider _provider;
+        private final LuteceUser _user;
+
+        /**
+         * Constructor
+         * @param provider the provider
+         * @param user the user
+         */
+        RolesFetch( IMyLuteceExternalRolesProvider provider, LuteceUser user )
+        {
+            _provider = provider;
+            _user = user;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Collection<String> call(  )
+        {
+            return _provider.providesRoles( _user );
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+
+import java.util.List;
+
+
+/**
+ * User parameter service able to check the password history of a user with
+ * bounded queries, instead of loading the whole history.
+ * The services implementing only {@link IUserParameterService} are handled in
+ * memory by {@link PasswordHistoryService}.
+ */
+public interface IPasswordHistoryParameterService extends IUserParameterService
+{
+    /**
+     * Checks in a single query whether a password is among the most recent
+     * passwords of a user, and counts the password changes of the user since a date
+     * @param nUserId Id of the user
+     * @param strPassword The password, as stored in the history
+     * @param nHistorySize Number of recent passwords to consider, 0 to skip the check
+     * @param minDate Minimum date of the changes to count, null to skip the count
+     * @param plugin the plugin
+     * @return The status of the password history
+     */
+    PasswordHistoryStatus getPasswordHistoryStatus( int nUserId, String strPassword, int nHistorySize,
+        Timestamp minDate, Plugin plugin );
+
+    /**
+     * Gets the most recent passwords of the given user
+     * @param nUserId Id of the user
+     * @param nLimit Maximum number of passwords to return
+     * @param plugin the plugin
+     * @return The most recent passwords used by the user, most recent first
+     */
+    List<String> selectUserPasswordHistory( int nUserId, int nLimit, Plugin plugin );
+}
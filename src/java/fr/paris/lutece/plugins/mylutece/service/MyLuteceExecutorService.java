@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Bounded thread pools of the optional parallel processings of MyLutece. The probes of
+ * the login have their own pool, so that the background processings (users prefetches,
+ * identity refreshes, roles providers) never delay a login. <br>
+ * When a pool and its queue are full, the tasks are rejected : they never run in
+ * the calling thread, which would not be bounded by any time limit. The future of a
+ * rejected task fails at once with a {@link RejectedExecutionException}.
+ */
+public final class MyLuteceExecutorService
+{
+    private static final String PROPERTY_PREFIX = "mylutece.executor.";
+    private static final String PROPERTY_PREFIX_LOGIN = "mylutece.executor.login.";
+    private static final String PROPERTY_THREADS = "threads";
+    private static final String PROPERTY_QUEUE_SIZE = "queueSize";
+    private static final int DEFAULT_THREADS = 8;
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final int DEFAULT_LOGIN_THREADS = 4;
+    private static final int DEFAULT_LOGIN_QUEUE_SIZE = 50;
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final String THREAD_NAME_PREFIX = "mylutece-worker-";
+    private static final String THREAD_NAME_PREFIX_LOGIN = "mylutece-login-";
+    private static MyLuteceExecutorService _singleton;
+    private static MyLuteceExecutorService _singletonLogin;
+    private final ThreadPoolExecutor _executor;
+
+    /**
+     * Private constructor
+     * @param strPropertyPrefix the prefix of the properties of the pool
+     * @param nDefaultThreads the default number of threads
+     * @param nDefaultQueueSize the default size of the queue
+     * @param strThreadNamePrefix the prefix of the names of the threads
+     */
+    private MyLuteceExecutorService( String strPropertyPrefix, int nDefaultThreads, int nDefaultQueueSize,
+        String strThreadNamePrefix )
+    {
+        int nThreads = Math.max( 1,
+                AppPropertiesService.getPropertyInt( strPropertyPrefix + PROPERTY_THREADS, nDefaultThreads ) );
+        int nQueueSize = Math.max( 1,
+                AppPropertiesService.getPropertyInt( strPropertyPrefix + PROPERTY_QUEUE_SIZE, nDefaultQueueSize ) );
+        _executor = new ThreadPoolExecutor( nThreads, nThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>( nQueueSize ), new WorkerThreadFactory( strThreadNamePrefix ),
+                new ThreadPoolExecutor.AbortPolicy(  ) );
+        _executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Returns the instance of the pool of the background processings
+     * @return the instance
+     */
+    public static synchronized MyLuteceExecutorService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new MyLuteceExecutorService( PROPERTY_PREFIX, DEFAULT_THREADS, DEFAULT_QUEUE_SIZE,
+                    THREAD_NAME_PREFIX );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Returns the instance of the pool dedicated to the probes of the login
+     * @return the instance
+     */
+    public static synchronized MyLuteceExecutorService getLoginInstance(  )
+    {
+        if ( _singletonLogin == null )
+        {
+            _singletonLogin = new MyLuteceExecutorService( PROPERTY_PREFIX_LOGIN, DEFAULT_LOGIN_THREADS,
+                    DEFAULT_LOGIN_QUEUE_SIZE, THREAD_NAME_PREFIX_LOGIN );
+        }
+
+        return _singletonLogin;
+    }
+
+    /**
+     * Shuts the pools down, when the plugin is uninstalled. The running tasks are
+     * interrupted, and the pools are created again if they are used afterwards.
+     */
+    public static synchronized void shutdownAll(  )
+    {
+        if ( _singleton != null )
+        {
+            _singleton._executor.shutdownNow(  );
+            _singleton = null;
+        }
+
+        if ( _singletonLogin != null )
+        {
+            _singletonLogin._executor.shutdownNow(  );
+            _singletonLogin = null;
+        }
+    }
+
+    /**
+     * Submits tasks to the pool
+     * @param listTasks the tasks
+     * @param <T> the type of the results
+     * @return the futures of the tasks, in the same order. The futures of the tasks
+     *         rejected by a saturated pool fail with a {@link RejectedExecutionException}
+     */
+    public <T> List<Future<T>> submitAll( List<? extends Callable<T>> listTasks )
+    {
+        List<Future<T>> listFutures = new ArrayList<Future<T>>( listTasks.size(  ) );
+
+        for ( Callable<T> task : listTasks )
+        {
+            try
+            {
+                listFutures.add( _executor.submit( task ) );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                FutureTask<T> rejected = new FutureTask<T>( new RejectedTask<T>(  ) );
+                rejected.run(  );
+                listFutures.add( rejected );
+            }
+        }
+
+        return listFutures;
+    }
+
+    /**
+     * Runs a task in the background
+     * @param task the task
+     * @return false if the task has been rejected because the pool is saturated
+     */
+    public boolean execute( Runnable task )
+    {
+        try
+        {
+            _executor.execute( task );
+
+            return true;
+        }
+        catch ( RejectedExecutionException e )
+        {
+            AppLogService.info( "MyLutece : background task skipped, the pool is saturated" );
+
+            return false;
+        }
+    }
+
+    /**
+     * Tells whether a task failed because it has been rejected by a saturated pool
+     * @param e the failure of the task
+     * @return true if the task has been rejected
+     */
+    public static boolean isRejected( ExecutionException e )
+    {
+        return e.getCause(  ) instanceof RejectedExecutionException;
+    }
+
+    /**
+     * Waits for the result of a task until a time limit. The task is cancelled if it is not done in time.
+     * @param future the future of the task
+     * @param lTimeLimit the time limit, in milliseconds since the epoch
+     * @param <T> the type of the result
+     * @return the result, or null if the task failed or did not complete in time
+     */
+    public static <T> T getResult( Future<T> future, long lTimeLimit )
+    {
+        try
+        {
+            return future.get( Math.max( 0L, lTimeLimit - System.currentTimeMillis(  ) ), TimeUnit.MILLISECONDS );
+        }
+        catch ( TimeoutException e )
+        {
+            AppLogService.info( "MyLutece : parallel task cancelled after its time limit" );
+            future.cancel( true );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( isRejected( e ) )
+            {
+                AppLogService.info( "MyLutece : parallel task skipped, the pool is saturated" );
+            }
+            else
+            {
+                AppLogService.error( "MyLutece : parallel task failed : " + e.getCause(  ), e.getCause(  ) );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            future.cancel( true );
+            Thread.currentThread(  ).interrupt(  );
+        }
+
+        return null;
+    }
+
+    /**
+     * Cancels tasks that are no longer needed
+     * @param listFutures the futures of the tasks
+     */
+    public static void cancelAll( List<? extends Future<?>> listFutures )
+    {
+        for ( Future<?> future : listFutures )
+        {
+            future.cancel( true );
+        }
+    }
+
+    /**
+     * Task standing for a task rejected by the pool
+     * @param <T> the type of the result
+     */
+    private static final class RejectedTask<T> implements Callable<T>
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public T call(  )
+        {
+            throw new RejectedExecutionException( "MyLutece : the pool is saturated" );
+        }
+    }
+
+    /**
+     * Creates named daemon threads, so that the pool never prevents the webapp from stopping
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _nCount = new AtomicInteger(  );
+        private final String _strNamePrefix;
+
+        /**
+         * Constructor
+         * @param strNamePrefix the prefix of the names of the threads
+         */
+        WorkerThreadFactory( String strNamePrefix )
+        {
+            _strNamePrefix = strNamePrefix;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, _strNamePrefix + _nCount.incrementAndGet(  ) );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
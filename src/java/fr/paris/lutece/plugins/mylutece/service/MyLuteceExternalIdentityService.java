@@ -1,12 +1,16 @@
 package fr.paris.lutece.plugins.mylutece.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
+import org.springframework.core.OrderComparator;
 
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
@@ -15,11 +19,16 @@ public class MyLuteceExternalIdentityService implements IMyLuteceExternalIdentit
 {
 
     private static final String PROPERTY_USER_MAPPING_ATTRIBUTES = "mylutece.identity.userMappingAttributes";
+    private static final String PROPERTY_PROVIDERS_MERGE = "mylutece.identity.providers.merge";
+    private static final String PROPERTY_PROVIDERS_TIMEOUT = "mylutece.identity.providers.timeout";
+    private static final long DEFAULT_PROVIDERS_TIMEOUT = 1000L;
     private static final String CONSTANT_LUTECE_USER_PROPERTIES_PATH = "mylutece.attribute";
     private static Map<String, List<String>> ATTRIBUTE_USER_MAPPING;
+    private static Map<String, String[]> _mapUserMappingArrays;
     private static final String BEAN_MY_LUTECE_IDENTITY_SERVICE="mylutece.myLuteceExternalIdentityService";
     private static volatile IMyLuteceExternalIdentityService _singleton;
     private static final String SEPARATOR = ",";
+    private static volatile IMyLuteceExternalIdentityProviderService[] _arrayIdentityProviders;
    
 
     /**
@@ -33,31 +42,37 @@ public class MyLuteceExternalIdentityService implements IMyLuteceExternalIdentit
         {
             synchronized( IMyLuteceExternalIdentityService.class )
             {
-                IMyLuteceExternalIdentityService service = SpringContextService.getBean(BEAN_MY_LUTECE_IDENTITY_SERVICE ); 
-                _singleton = service;
-                String strUserMappingAttributes = AppPropertiesService.getProperty( PROPERTY_USER_MAPPING_ATTRIBUTES );
-                ATTRIBUTE_USER_MAPPING = new HashMap<String, List<String>>(  );
-
-                if ( StringUtils.isNotBlank( strUserMappingAttributes ) )
+                if ( _singleton == null )
                 {
-                    String[] tabUserProperties = strUserMappingAttributes.split( SEPARATOR );
-                    String userProperties;
+                    IMyLuteceExternalIdentityService service = SpringContextService.getBean(BEAN_MY_LUTECE_IDENTITY_SERVICE ); 
+                    String strUserMappingAttributes = AppPropertiesService.getProperty( PROPERTY_USER_MAPPING_ATTRIBUTES );
+                    ATTRIBUTE_USER_MAPPING = new HashMap<String, List<String>>(  );
 
-                    for ( int i = 0; i < tabUserProperties.length; i++ )
+                    if ( StringUtils.isNotBlank( strUserMappingAttributes ) )
                     {
-                        userProperties = AppPropertiesService.getProperty( CONSTANT_LUTECE_USER_PROPERTIES_PATH + "." +
-                                tabUserProperties[i] );
+                        String[] tabUserProperties = strUserMappingAttributes.split( SEPARATOR );
+                        String userProperties;
 
-                        if ( StringUtils.isNotBlank( userProperties ) )
+                        for ( int i = 0; i < tabUserProperties.length; i++ )
                         {
-                            if(!ATTRIBUTE_USER_MAPPING.containsKey(userProperties))
+                            userProperties = AppPropertiesService.getProperty( CONSTANT_LUTECE_USER_PROPERTIES_PATH + "." +
+                                    tabUserProperties[i] );
+
+                            if ( StringUtils.isNotBlank( userProperties ) )
                             {
-                                ATTRIBUTE_USER_MAPPING.put(userProperties,new ArrayList<String>());
+                                if(!ATTRIBUTE_USER_MAPPING.containsKey(userProperties))
+                                {
+                                    ATTRIBUTE_USER_MAPPING.put(userProperties,new ArrayList<String>());
+                                }
+                                ATTRIBUTE_USER_MAPPING.get(userProperties).add(tabUserProperties[i] );
+                                
                             }
-                            ATTRIBUTE_USER_MAPPING.get(userProperties).add(tabUserProperties[i] );
-                            
                         }
                     }
+
+                    _mapUserMappingArrays = toArrays( ATTRIBUTE_USER_MAPPING );
+                    // Published last, so that the mappings are ready for the other threads
+                    _singleton = service;
                 }
             }
         }
@@ -82,22 +97,37 @@ public class MyLuteceExternalIdentityService implements IMyLuteceExternalIdentit
     public Map<String,String>getIdentityInformations(String strUserName,Map<String, List<String>> attributeUserMappings)
     {
         Map<String,String> mapIdentityInformationsResult=new HashMap<String, String>( );
-        Map<String,String> mapIdentityInformations=null;
-        for ( IMyLuteceExternalIdentityProviderService identityProviderService : SpringContextService.getBeansOfType( 
-                IMyLuteceExternalIdentityProviderService.class ) )
-        {
-            mapIdentityInformations=identityProviderService.getIdentityInformations( strUserName );
-            break;
-        }
+        Map<String,String> mapIdentityInformations = fetchIdentityInformations( strUserName );
+
         if ( mapIdentityInformations != null )
         {
+            // The default mapping is precomputed, other mappings are read directly
+            Map<String, String[]> mapUserMappingArrays = ( attributeUserMappings == ATTRIBUTE_USER_MAPPING ) ? _mapUserMappingArrays : null;
+
             for ( Entry<String, String> entry : mapIdentityInformations.entrySet(  ) )
             {
-                if ( attributeUserMappings.containsKey( entry.getKey(  ) ) )
+                if ( mapUserMappingArrays != null )
+                {
+                    String[] arrayUserInfos = mapUserMappingArrays.get( entry.getKey(  ) );
+
+                    if ( arrayUserInfos != null )
+                    {
+                        for ( String strUserInfo : arrayUserInfos )
+                        {
+                            mapIdentityInformationsResult.put( strUserInfo, entry.getValue(  ) );
+                        }
+                    }
+                }
+                else
                 {
-                    for(String strUserInfo:attributeUserMappings.get( entry.getKey(  )))
+                    List<String> listUserInfos = attributeUserMappings.get( entry.getKey(  ) );
+
+                    if ( listUserInfos != null )
                     {
-                        mapIdentityInformationsResult.put(strUserInfo, entry.getValue(  ) );
+                        for ( String strUserInfo : listUserInfos )
+                        {
+                            mapIdentityInformationsResult.put( strUserInfo, entry.getValue(  ) );
+                        }
                     }
                 }
             }
@@ -107,6 +137,133 @@ public class MyLuteceExternalIdentityService implements IMyLuteceExternalIdentit
         }
         return mapIdentityInformationsResult;
     }
-    
 
+    /**
+     * Gets the identity informations from the providers. By default, only the provider with the highest
+     * precedence is used. In merge mode, all the providers are queried concurrently, each one within the
+     * providers timeout, and the informations of a provider override those of the providers with a lower precedence.
+     * @param strUserName the user name
+     * @return the identity informations, or null if there is no provider
+     */
+    private static Map<String, String> fetchIdentityInformations( String strUserName )
+    {
+        IMyLuteceExternalIdentityProviderService[] arrayIdentityProviders = getIdentityProviders( );
+
+        if ( arrayIdentityProviders.length == 0 )
+        {
+            return null;
+        }
+
+        if ( ( arrayIdentityProviders.length == 1 ) || !AppPropertiesService.getPropertyBoolean( PROPERTY_PROVIDERS_MERGE, false ) )
+        {
+            return arrayIdentityProviders[0].getIdentityInformations( strUserName );
+        }
+
+        List<IdentityInformationsFetch> listFetches = new ArrayList<IdentityInformationsFetch>( arrayIdentityProviders.length );
+
+        for ( IMyLuteceExternalIdentityProviderService identityProviderService : arrayIdentityProviders )
+        {
+            listFetches.add( new IdentityInformationsFetch( identityProviderService, strUserName ) );
+        }
+
+        long lTimeLimit = System.currentTimeMillis( ) + AppPropertiesService.getPropertyLong( PROPERTY_PROVIDERS_TIMEOUT, DEFAULT_PROVIDERS_TIMEOUT );
+        List<Future<Map<String, String>>> listFutures = MyLuteceExecutorService.getInstance( ).submitAll( listFetches );
+        Map<String, String> mapIdentityInformations = new HashMap<String, String>( );
+
+        try
+        {
+            // Lowest precedence first, so that the highest precedence wins
+            for ( int i = listFutures.size( ) - 1; i >= 0; i-- )
+            {
+                Map<String, String> mapProviderInformations = MyLuteceExecutorService.getResult( listFutures.get( i ), lTimeLimit );
+
+                if ( mapProviderInformations != null )
+                {
+                    mapIdentityInformations.putAll( mapProviderInformations );
+                }
+            }
+        }
+        finally
+        {
+            MyLuteceExecutorService.cancelAll( listFutures );
+        }
+
+        return mapIdentityInformations;
+    }
+
+    /**
+     * Copies a user mapping into arrays
+     * @param attributeUserMappings the user mapping
+     * @return the user mapping with arrays of user infos
+     */
+    private static Map<String, String[]> toArrays( Map<String, List<String>> attributeUserMappings )
+    {
+        Map<String, String[]> mapUserMappingArrays = new HashMap<String, String[]>( );
+
+        for ( Entry<String, List<String>> entry : attributeUserMappings.entrySet( ) )
+        {
+            mapUserMappingArrays.put( entry.getKey( ), entry.getValue( ).toArray( new String[entry.getValue( ).size( )] ) );
+        }
+
+        return mapUserMappingArrays;
+    }
+
+    /**
+     * Gets the identity providers, sorted by precedence (see {@link org.springframework.core.Ordered}).
+     * The Spring context is only scanned once, until {@link #refreshProviders()} is called.
+     * @return the identity providers
+     */
+    private static IMyLuteceExternalIdentityProviderService[] getIdentityProviders( )
+    {
+        IMyLuteceExternalIdentityProviderService[] arrayIdentityProviders = _arrayIdentityProviders;
+
+        if ( arrayIdentityProviders == null )
+        {
+            List<IMyLuteceExternalIdentityProviderService> listIdentityProviders = SpringContextService.getBeansOfType( IMyLuteceExternalIdentityProviderService.class );
+            arrayIdentityProviders = listIdentityProviders.toArray( new IMyLuteceExternalIdentityProviderService[listIdentityProviders.size( )] );
+            // Stable sort : providers without order keep their order
+            Arrays.sort( arrayIdentityProviders, OrderComparator.INSTANCE );
+            _arrayIdentityProviders = arrayIdentityProviders;
+        }
+
+        return arrayIdentityProviders;
+    }
+
+    /**
+     * Forgets the identity providers, so that they are looked up again in the Spring context.
+     * Should be called when a plugin is installed or uninstalled.
+     */
+    public static void refreshProviders( )
+    {
+        _arrayIdentityProviders = null;
+    }
+
+    /**
+     * Fetch of the identity informations of a provider, run by the pool in merge mode
+     */
+    private static final class IdentityInformationsFetch implements Callable<Map<String, String>>
+    {
+        private final IMyLuteceExternalIdentityProviderService _identityProviderService;
+        private final String _strUserName;
+
+        /**
+         * Constructor
+         * @param identityProviderService the identity provider
+         * @param strUserName the user name
+         */
+        IdentityInformationsFetch( IMyLuteceExternalIdentityProviderService identityProviderService, String strUserName )
+        {
+            _identityProviderService = identityProviderService;
+            _strUserName = strUserName;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Map<String, String> call( )
+        {
+            return _identityProviderService.getIdentityInformations( _strUserName );
+        }
+    }
 }
@@ -33,7 +33,9 @@
  */
 package fr.paris.lutece.plugins.mylutece.service;
 
+import fr.paris.lutece.plugins.mylutece.service.password.PasswordHashService;
 import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
+import fr.paris.lutece.portal.service.plugin.PluginService;
 
 
 /**
@@ -51,5 +53,12 @@ public class MyLutecePlugin extends PluginDefaultImplementation
      */
     public void init(  )
     {
+        PluginService.registerPluginEventListener( new MyLutecePluginEventListener(  ) );
+
+        if ( PasswordHashService.isAdaptiveHashingEnabled(  ) )
+        {
+            // Calibrates the cost of the password hashes at startup
+            PasswordHashService.getInstance(  );
+        }
     }
 }
@@ -33,14 +33,15 @@
  */
 package fr.paris.lutece.plugins.mylutece.service;
 
-import fr.paris.lutece.portal.service.security.LuteceUser;
-import fr.paris.lutece.portal.service.security.SecurityService;
 import fr.paris.lutece.portal.service.security.UserAttributesService;
 
 import org.apache.commons.lang.StringUtils;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -56,11 +57,11 @@ public final class MyLuteceUserAttributesService implements UserAttributesServic
     public String getAttribute( String strUserId, String strAttribute )
     {
         String strAttributeValue = StringUtils.EMPTY;
-        LuteceUser user = SecurityService.getInstance(  ).getUser( strUserId );
+        Map<String, String> mapUserInfos = UserAttributesCacheService.getInstance(  ).getUserInfos( strUserId );
 
-        if ( user != null )
+        if ( mapUserInfos != null )
         {
-            strAttributeValue = user.getUserInfo( strAttribute );
+            strAttributeValue = mapUserInfos.get( strAttribute );
         }
 
         return strAttributeValue;
@@ -72,13 +73,58 @@ public final class MyLuteceUserAttributesService implements UserAttributesServic
     public Map<String, String> getAttributes( String strUserId )
     {
         Map<String, String> mapAttributes = new HashMap<String, String>(  );
-        LuteceUser user = SecurityService.getInstance(  ).getUser( strUserId );
+        Map<String, String> mapUserInfos = UserAttributesCacheService.getInstance(  ).getUserInfos( strUserId );
 
-        if ( user != null )
+        if ( mapUserInfos != null )
         {
-            mapAttributes = user.getUserInfos(  );
+            mapAttributes.putAll( mapUserInfos );
         }
 
         return mapAttributes;
     }
+
+    /**
+     * Gets some attributes of several users at once
+     * @param userIds the user ids
+     * @param attributeNames the names of the attributes to get, or null to get all the attributes
+     * @return the attributes of each user, in the order of the user ids. Unknown users have no attributes.
+     */
+    public Map<String, Map<String, String>> getAttributes( Collection<String> userIds, Set<String> attributeNames )
+    {
+        Map<String, Map<String, String>> mapUsersAttributes = new LinkedHashMap<String, Map<String, String>>(  );
+        UserAttributesCacheService cacheService = UserAttributesCacheService.getInstance(  );
+
+        for ( String strUserId : userIds )
+        {
+            if ( mapUsersAttributes.containsKey( strUserId ) )
+            {
+                continue;
+            }
+
+            Map<String, String> mapAttributes = new HashMap<String, String>(  );
+            Map<String, String> mapUserInfos = cacheService.getUserInfos( strUserId );
+
+            if ( mapUserInfos != null )
+            {
+                if ( attributeNames == null )
+                {
+                    mapAttributes.putAll( mapUserInfos );
+                }
+                else
+                {
+                    for ( String strAttribute : attributeNames )
+                    {
+                        if ( mapUserInfos.containsKey( strAttribute ) )
+                        {
+                            mapAttributes.put( strAttribute, mapUserInfos.get( strAttribute ) );
+                        }
+                    }
+                }
+            }
+
+            mapUsersAttributes.put( strUserId, mapAttributes );
+        }
+
+        return mapUsersAttributes;
+    }
 }
@@ -33,14 +33,9 @@
  */
 package fr.paris.lutece.plugins.mylutece.service;
 
-import fr.paris.lutece.portal.business.role.Role;
-import fr.paris.lutece.portal.business.role.RoleHome;
 import fr.paris.lutece.portal.service.security.LuteceUser;
-import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -53,8 +48,13 @@ public class MyLuteceUserService
      */
     public static void provideUserExternalInfos( LuteceUser user )
     {
+        if ( user == null )
+        {
+            return;
+        }
+
         // add external identities informations
-        Map<String, String> identityInformations = MyLuteceExternalIdentityService.getInstance( ).getIdentityInformations( user.getName( ) );
+        Map<String, String> identityInformations = ExternalIdentityCacheService.getInstance( ).getIdentityInformations( user.getName( ) );
        
         if ( identityInformations != null && !identityInformations.isEmpty( ) )
         {
@@ -62,25 +62,24 @@ public class MyLuteceUserService
         }
         
         // Get the external roles 
-        Set<String> listRoles = new HashSet<>( );
-        for ( IMyLuteceExternalRolesProvider roleProvider : SpringContextService.getBeansOfType( IMyLuteceExternalRolesProvider.class ) )
-        {
-            listRoles.addAll( roleProvider.providesRoles( user ) );
-        }
-        //Check existence of each front role
-        List<String> listUnexistingRoles = new ArrayList<>();
-        for ( String strRole : listRoles )
+        Set<String> listRoles = ExternalRolesProviderService.getInstance( ).getRoles( user );
+        //Check existence of each front role. The roles missing from the catalog are looked up in the database
+        RoleCatalogService roleCatalogService = RoleCatalogService.getInstance( );
+        if ( !roleCatalogService.getRoleCodes( ).containsAll( listRoles ) )
         {
-            Role role = RoleHome.findByPrimaryKey( strRole );
-            if ( role == null )
+            for ( Iterator<String> iterator = listRoles.iterator( ); iterator.hasNext( ); )
             {
-                listUnexistingRoles.add( strRole );
-                AppLogService.error( "The role " + strRole + " doesn't exist in BO.");
+                String strRole = iterator.next( );
+                if ( !roleCatalogService.exists( strRole ) )
+                {
+                    iterator.remove( );
+                    AppLogService.error( "The role " + strRole + " doesn't exist in BO.");
+                }
             }
         }
-        listRoles.removeAll( listUnexistingRoles );
 
         //Add to the user the existing roles
+        RoleDictionary.getInstance( ).internAll( listRoles );
         user.addRoles( listRoles );
     }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+
+import java.util.List;
+
+
+/**
+ * Access to the password history of the users. The parameter services implementing
+ * {@link IPasswordHistoryParameterService} answer with bounded queries, the other
+ * ones are handled in memory from their whole history.
+ */
+public final class PasswordHistoryService
+{
+    /**
+     * Private constructor
+     */
+    private PasswordHistoryService(  )
+    {
+    }
+
+    /**
+     * Checks whether a password is among the most recent passwords of a user, and
+     * counts the password changes of the user since a date
+     * @param parameterService the parameter service
+     * @param nUserId Id of the user
+     * @param strPassword The password, as stored in the history
+     * @param nHistorySize Number of recent passwords to consider, 0 to skip the check
+     * @param minDate Minimum date of the changes to count, null to skip the count
+     * @param plugin the plugin
+     * @return The status of the password history
+     */
+    public static PasswordHistoryStatus getPasswordHistoryStatus( IUserParameterService parameterService,
+        int nUserId, String strPassword, int nHistorySize, Timestamp minDate, Plugin plugin )
+    {
+        if ( parameterService instanceof IPasswordHistoryParameterService )
+        {
+            return ( (IPasswordHistoryParameterService) parameterService ).getPasswordHistoryStatus( nUserId,
+                strPassword, nHistorySize, minDate, plugin );
+        }
+
+        boolean bPasswordInHistory = ( nHistorySize > 0 ) &&
+            selectUserPasswordHistory( parameterService, nUserId, nHistorySize, plugin ).contains( strPassword );
+        int nChangeCount = ( minDate != null )
+            ? parameterService.countUserPasswordHistoryFromDate( minDate, nUserId, plugin ) : 0;
+
+        return new PasswordHistoryStatus( bPasswordInHistory, nChangeCount );
+    }
+
+    /**
+     * Gets the most recent passwords of the given user
+     * @param parameterService the parameter service
+     * @param nUserId Id of the user
+     * @param nLimit Maximum number of passwords to return
+     * @param plugin the plugin
+     * @return The most recent passwords used by the user, most recent first
+     */
+    public static List<String> selectUserPasswordHistory( IUserParameterService parameterService, int nUserId,
+        int nLimit, Plugin plugin )
+    {
+        if ( parameterService instanceof IPasswordHistoryParameterService )
+        {
+            return ( (IPasswordHistoryParameterService) parameterService ).selectUserPasswordHistory( nUserId, nLimit,
+                plugin );
+        }
+
+        List<String> listPasswords = parameterService.selectUserPasswordHistory( nUserId, plugin );
+
+        if ( nLimit < listPasswords.size(  ) )
+        {
+            listPasswords = listPasswords.subList( 0, nLimit );
+        }
+
+        return listPasswords;
+    }
+}
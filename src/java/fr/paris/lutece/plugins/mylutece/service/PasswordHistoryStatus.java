@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+
+/**
+ * Status of the password history of a user
+ */
+public final class PasswordHistoryStatus
+{
+    private final boolean _bPasswordInHistory;
+    private final int _nChangeCount;
+
+    /**
+     * Constructor
+     * @param bPasswordInHistory True if the password is among the most recent passwords
+     * @param nChangeCount The number of password changes since the requested date
+     */
+    public PasswordHistoryStatus( boolean bPasswordInHistory, int nChangeCount )
+    {
+        _bPasswordInHistory = bPasswordInHistory;
+        _nChangeCount = nChangeCount;
+    }
+
+    /**
+     * Checks whether the password is among the most recent passwords of the user
+     * @return true if the password has already been used
+     */
+    public boolean isPasswordInHistory(  )
+    {
+        return _bPasswordInHistory;
+    }
+
+    /**
+     * Get the number of password changes since the requested date
+     * @return The number of password changes, 0 if they were not counted
+     */
+    public int getChangeCount(  )
+    {
+        return _nChangeCount;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.business.role.RoleHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.ReferenceItem;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * In-memory catalog of the codes of the front office roles, so that checking the existence of
+ * roles doesn't query the database. The catalog is reloaded after <code>mylutece.roles.catalog.ttl</code>
+ * seconds, or when {@link #refresh()} is called. A role missing from the catalog is looked up in the
+ * database and added to the catalog if it exists, so that a role just created in the back office
+ * is known at once. A role missing from the database is remembered during
+ * <code>mylutece.roles.catalog.negativeTtl</code> seconds, so that an unknown external role costs
+ * at most one query per period.
+ */
+public final class RoleCatalogService
+{
+    private static final String PROPERTY_TTL = "mylutece.roles.catalog.ttl";
+    private static final String PROPERTY_NEGATIVE_TTL = "mylutece.roles.catalog.negativeTtl";
+    private static final int DEFAULT_TTL = 300;
+    private static final int DEFAULT_NEGATIVE_TTL = 60;
+    private static final int MAX_MISSING_ROLES = 1000;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static final RoleCatalogService _singleton = new RoleCatalogService(  );
+    private volatile Set<String> _setRoleCodes;
+    private volatile long _lExpiration;
+    private final ConcurrentMap<String, Long> _mapMissingRoles = new ConcurrentHashMap<String, Long>(  );
+
+    /**
+     * Private constructor
+     */
+    private RoleCatalogService(  )
+    {
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static RoleCatalogService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Gets the codes of all the front office roles
+     * @return the unmodifiable set of the role codes
+     */
+    public Set<String> getRoleCodes(  )
+    {
+        Set<String> setRoleCodes = _setRoleCodes;
+
+        if ( ( setRoleCodes == null ) || ( System.currentTimeMillis(  ) > _lExpiration ) )
+        {
+            setRoleCodes = load(  );
+        }
+
+        return setRoleCodes;
+    }
+
+    /**
+     * Tells whether a role exists. A role missing from the catalog is looked up in the database,
+     * unless it has been found missing recently.
+     * @param strRoleCode the role code
+     * @return true if the role exists
+     */
+    public boolean exists( String strRoleCode )
+    {
+        if ( getRoleCodes(  ).contains( strRoleCode ) )
+        {
+            return true;
+        }
+
+        if ( ( strRoleCode == null ) || isKnownMissing( strRoleCode ) )
+        {
+            return false;
+        }
+
+        if ( RoleHome.findByPrimaryKey( strRoleCode ) == null )
+        {
+            putMissing( strRoleCode );
+
+            return false;
+        }
+
+        add( strRoleCode );
+
+        return true;
+    }
+
+    /**
+     * Forgets the catalog, so that it is loaded again on next use. Should be called when roles are modified.
+     */
+    public void refresh(  )
+    {
+        _setRoleCodes = null;
+        _mapMissingRoles.clear(  );
+    }
+
+    /**
+     * Tells whether a role has been found missing from the database recently
+     * @param strRoleCode the role code
+     * @return true if the role is known to be missing
+     */
+    private boolean isKnownMissing( String strRoleCode )
+    {
+        Long lExpiration = _mapMissingRoles.get( strRoleCode );
+
+        if ( lExpiration == null )
+        {
+            return false;
+        }
+
+        if ( System.currentTimeMillis(  ) > lExpiration )
+        {
+            _mapMissingRoles.remove( strRoleCode, lExpiration );
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Remembers that a role is missing from the database
+     * @param strRoleCode the role code
+     */
+    private void putMissing( String strRoleCode )
+    {
+        int nTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_NEGATIVE_TTL, DEFAULT_NEGATIVE_TTL );
+
+        if ( nTimeToLive > 0 )
+        {
+            if ( _mapMissingRoles.size(  ) >= MAX_MISSING_ROLES )
+            {
+                // Bounds the memory used by the external roles unknown to the portal
+                _mapMissingRoles.clear(  );
+            }
+
+            _mapMissingRoles.put( strRoleCode, System.currentTimeMillis(  ) + ( nTimeToLive * MILLISECONDS_PER_SECOND ) );
+        }
+    }
+
+    /**
+     * Adds a role created since the catalog has been loaded
+     * @param strRoleCode the role code
+     */
+    private synchronized void add( String strRoleCode )
+    {
+        Set<String> setRoleCodes = _setRoleCodes;
+
+        if ( ( setRoleCodes != null ) && !setRoleCodes.contains( strRoleCode ) )
+        {
+            Set<String> setNewRoleCodes = new HashSet<String>( setRoleCodes );
+            setNewRoleCodes.add( strRoleCode );
+            _setRoleCodes = Collections.unmodifiableSet( setNewRoleCodes );
+        }
+
+        RoleDictionary.getInstance(  ).intern( strRoleCode );
+    }
+
+    /**
+     * Loads the catalog from the database, unless another thread just did it
+     * @return the role codes
+     */
+    private synchronized Set<String> load(  )
+    {
+        Set<String> setRoleCodes = _setRoleCodes;
+
+        if ( ( setRoleCodes != null ) && ( System.currentTimeMillis(  ) <= _lExpiration ) )
+        {
+            return setRoleCodes;
+        }
+
+        setRoleCodes = new HashSet<String>(  );
+
+        for ( ReferenceItem role : RoleHome.getRolesList(  ) )
+        {
+            setRoleCodes.add( role.getCode(  ) );
+        }
+
+        RoleDictionary.getInstance(  ).internAll( setRoleCodes );
+        setRoleCodes = Collections.unmodifiableSet( setRoleCodes );
+        _lExpiration = System.currentTimeMillis(  ) +
+            ( AppPropertiesService.getPropertyInt( PROPERTY_TTL, DEFAULT_TTL ) * MILLISECONDS_PER_SECOND );
+        _setRoleCodes = setRoleCodes;
+
+        return setRoleCodes;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Dictionary giving a dense integer id to each role code, so that sets of roles can be stored
+ * as bitsets of a few words and compared without allocation. <br>
+ * Ids are never reused : the dictionary only grows, with the roles of the catalog and the roles
+ * given to the users.
+ */
+public final class RoleDictionary
+{
+    private static final int BITS_PER_WORD = 64;
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final long[] EMPTY_BITSET = new long[0];
+    private static final RoleDictionary _singleton = new RoleDictionary(  );
+    private final Map<String, Integer> _mapIds = new ConcurrentHashMap<String, Integer>(  );
+
+    /**
+     * Private constructor
+     */
+    private RoleDictionary(  )
+    {
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static RoleDictionary getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Gets the id of a role, giving it a new id if needed
+     * @param strRole the role code
+     * @return the id
+     */
+    public int intern( String strRole )
+    {
+        Integer nId = _mapIds.get( strRole );
+
+        if ( nId != null )
+        {
+            return nId;
+        }
+
+        synchronized ( _mapIds )
+        {
+            nId = _mapIds.get( strRole );
+
+            if ( nId == null )
+            {
+                nId = _mapIds.size(  );
+                _mapIds.put( strRole, nId );
+            }
+
+            return nId;
+        }
+    }
+
+    /**
+     * Gives an id to each role of a collection
+     * @param roles the role codes
+     */
+    public void internAll( Collection<String> roles )
+    {
+        for ( String strRole : roles )
+        {
+            intern( strRole );
+        }
+    }
+
+    /**
+     * Gets the id of a role, without giving it an id
+     * @param strRole the role code
+     * @return the id, or -1 if the role is unknown
+     */
+    public int getId( String strRole )
+    {
+        Integer nId = ( strRole != null ) ? _mapIds.get( strRole ) : null;
+
+        return ( nId != null ) ? nId : ( -1 );
+    }
+
+    /**
+     * Encodes roles as a bitset, giving an id to the unknown roles
+     * @param arrayRoles the role codes
+     * @return the bitset
+     */
+    public long[] toBitSet( String[] arrayRoles )
+    {
+        if ( ( arrayRoles == null ) || ( arrayRoles.length == 0 ) )
+        {
+            return EMPTY_BITSET;
+        }
+
+        int[] arrayIds = new int[arrayRoles.length];
+        int nMaxId = -1;
+
+        for ( int i = 0; i < arrayRoles.length; i++ )
+        {
+            arrayIds[i] = ( arrayRoles[i] != null ) ? intern( arrayRoles[i] ) : ( -1 );
+            nMaxId = Math.max( nMaxId, arrayIds[i] );
+        }
+
+        long[] bitSet = new long[( nMaxId >> ADDRESS_BITS_PER_WORD ) + 1];
+
+        for ( int nId : arrayIds )
+        {
+            if ( nId >= 0 )
+            {
+                bitSet[nId >> ADDRESS_BITS_PER_WORD] |= ( 1L << ( nId & ( BITS_PER_WORD - 1 ) ) );
+            }
+        }
+
+        return bitSet;
+    }
+
+    /**
+     * Encodes roles as a mask for {@link #intersects(long[], long[])}. Unknown roles are ignored :
+     * no user has them, since the roles of the users are all given an id.
+     * @param roles the role codes
+     * @return the bitset
+     */
+    public long[] getMask( Collection<String> roles )
+    {
+        long[] mask = EMPTY_BITSET;
+
+        for ( String strRole : roles )
+        {
+            int nId = getId( strRole );
+
+            if ( nId >= 0 )
+            {
+                int nWord = nId >> ADDRESS_BITS_PER_WORD;
+
+                if ( nWord >= mask.length )
+                {
+                    mask = Arrays.copyOf( mask, nWord + 1 );
+                }
+
+                mask[nWord] |= ( 1L << ( nId & ( BITS_PER_WORD - 1 ) ) );
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Tells whether a bitset contains a role
+     * @param bitSet the bitset
+     * @param nId the role id
+     * @return true if the role is in the bitset
+     */
+    public static boolean contains( long[] bitSet, int nId )
+    {
+        if ( nId < 0 )
+        {
+            return false;
+        }
+
+        int nWord = nId >> ADDRESS_BITS_PER_WORD;
+
+        return ( nWord < bitSet.length ) && ( ( bitSet[nWord] & ( 1L << ( nId & ( BITS_PER_WORD - 1 ) ) ) ) != 0 );
+    }
+
+    /**
+     * Tells whether two bitsets have a role in common
+     * @param bitSet the first bitset
+     * @param mask the second bitset
+     * @return true if the bitsets have at least one role in common
+     */
+    public static boolean intersects( long[] bitSet, long[] mask )
+    {
+        int nLength = Math.min( bitSet.length, mask.length );
+
+        for ( int i = 0; i < nLength; i++ )
+        {
+            if ( ( bitSet[i] & mask[i] ) != 0 )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
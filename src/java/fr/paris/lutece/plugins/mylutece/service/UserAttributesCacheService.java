@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import fr.paris.lutece.portal.service.security.LuteceUser;
+import fr.paris.lutece.portal.service.security.SecurityService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Cache of the user infos read by {@link MyLuteceUserAttributesService}, so that the user is
+ * not resolved again for each attribute. Entries expire after a short time, and are removed
+ * on logout and when user fields are modified.
+ */
+public final class UserAttributesCacheService extends AbstractExpiringCacheService
+{
+    private static final String SERVICE_NAME = "MyLutece User Attributes Cache Service";
+    private static final String PROPERTY_TTL = "mylutece.userAttributes.cacheTtl";
+    private static final int DEFAULT_TTL = 60;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static UserAttributesCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private UserAttributesCacheService(  )
+    {
+        initCache(  );
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static synchronized UserAttributesCacheService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new UserAttributesCacheService(  );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName(  )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Gets the infos of a user, from the cache or from the security service.
+     * The returned map must not be modified.
+     * @param strUserId the user id
+     * @return the user infos, or null if the user is not found
+     */
+    @SuppressWarnings( "unchecked" )
+    public Map<String, String> getUserInfos( String strUserId )
+    {
+        if ( strUserId == null )
+        {
+            return null;
+        }
+
+        Object cached = getUnexpiredFromCache( strUserId );
+
+        if ( cached instanceof Map )
+        {
+            return (Map<String, String>) cached;
+        }
+
+        if ( Boolean.FALSE.equals( cached ) )
+        {
+            return null;
+        }
+
+        LuteceUser user = SecurityService.getInstance(  ).getUser( strUserId );
+        Map<String, String> mapUserInfos = null;
+        long lTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_TTL, DEFAULT_TTL ) * MILLISECONDS_PER_SECOND;
+
+        if ( user != null )
+        {
+            mapUserInfos = ( user.getUserInfos(  ) != null ) ? new HashMap<String, String>( user.getUserInfos(  ) )
+                                                             : new HashMap<String, String>(  );
+        }
+
+        if ( lTimeToLive > 0 )
+        {
+            putInCache( strUserId, ( mapUserInfos != null ) ? mapUserInfos : Boolean.FALSE, lTimeToLive );
+        }
+
+        return mapUserInfos;
+    }
+
+    /**
+     * Removes the infos of a user from the cache
+     * @param strUserId the user id
+     */
+    public void removeUserInfos( String strUserId )
+    {
+        if ( strUserId != null )
+        {
+            removeKey( strUserId );
+        }
+    }
+}
@@ -38,6 +38,7 @@ import fr.paris.lutece.plugins.mylutece.business.attribute.IAttribute;
 import fr.paris.lutece.plugins.mylutece.business.attribute.MyLuteceUserField;
 import fr.paris.lutece.plugins.mylutece.business.attribute.MyLuteceUserFieldHome;
 import fr.paris.lutece.plugins.mylutece.service.MyLutecePlugin;
+import fr.paris.lutece.plugins.mylutece.service.invalidation.InvalidationService;
 import fr.paris.lutece.portal.business.user.AdminUser;
 import fr.paris.lutece.portal.service.message.AdminMessage;
 import fr.paris.lutece.portal.service.message.AdminMessageService;
@@ -126,6 +127,8 @@ public class MyLuteceUserFieldService
         {
             myLuteceUserFieldListenerService.doCreateUserFields( nIdUser, request, locale );
         }
+
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
     }
 
     /**
@@ -162,6 +165,9 @@ public class MyLuteceUserFieldService
         {
             myLuteceUserFieldListenerService.doModifyUserFields( nIdUser, request, locale, currentUser );
         }
+
+        // User fields are keyed by user id, not by login : the whole cache is reset, on every node
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
     }
 
     /**
@@ -180,6 +186,8 @@ public class MyLuteceUserFieldService
         {
             myLuteceUserFieldListenerService.doRemoveUserFields( nIdUser, request, locale );
         }
+
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
     }
 
     /**
@@ -197,5 +205,7 @@ public class MyLuteceUserFieldService
         {
             myLuteceUserFieldListenerService.doRemoveUserFields( nIdUser, locale );
         }
+
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
     }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.invalidation;
+
+import fr.paris.lutece.plugins.mylutece.service.RoleCatalogService;
+import fr.paris.lutece.plugins.mylutece.service.UserAttributesCacheService;
+import fr.paris.lutece.plugins.mylutece.service.security.AuthenticationFilterService;
+import fr.paris.lutece.plugins.mylutece.util.SecurityParameters;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Invalidation bus of the data cached by the plugin. Publishing a topic drops the
+ * cached data of the topic on the current node at once, and on the other nodes of
+ * the cluster when they poll the transport (see {@link InvalidationDaemon}).
+ * The transport is the <code>mylutece.invalidationTransport</code> bean.
+ */
+public final class InvalidationService
+{
+    /** Topic of the security parameters */
+    public static final String TOPIC_SECURITY_PARAMETERS = "security_parameters";
+
+    /** Topic of the public Urls of the authentication filter */
+    public static final String TOPIC_PUBLIC_URLS = "public_urls";
+
+    /** Topic of the catalog of the roles */
+    public static final String TOPIC_ROLES = "roles";
+
+    /** Topic of the user attributes */
+    public static final String TOPIC_USER_ATTRIBUTES = "user_attributes";
+    private static final String BEAN_INVALIDATION_TRANSPORT = "mylutece.invalidationTransport";
+    private static InvalidationService _singleton;
+    private final IInvalidationTransport _transport;
+    private final ConcurrentMap<String, List<IInvalidationListener>> _mapListeners = new ConcurrentHashMap<String, List<IInvalidationListener>>(  );
+    private final Map<String, Long> _mapKnownVersions = new HashMap<String, Long>(  );
+
+    /**
+     * Constructor
+     * @param transport The transport of the invalidations
+     */
+    InvalidationService( IInvalidationTransport transport )
+    {
+        _transport = transport;
+
+        try
+        {
+            // The data cached before the first poll is up to date with these versions
+            _mapKnownVersions.putAll( transport.getVersions(  ) );
+        }
+        catch ( Exception e )
+        {
+            AppLogService.error( "MyLutece - Unable to read the invalidation versions : " + e.getMessage(  ), e );
+        }
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static synchronized InvalidationService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            IInvalidationTransport transport = SpringContextService.getBean( BEAN_INVALIDATION_TRANSPORT );
+            InvalidationService service = new InvalidationService( transport );
+            IInvalidationListener listener = new CacheInvalidationListener(  );
+            service.addListener( TOPIC_SECURITY_PARAMETERS, listener );
+            service.addListener( TOPIC_PUBLIC_URLS, listener );
+            service.addListener( TOPIC_ROLES, listener );
+            service.addListener( TOPIC_USER_ATTRIBUTES, listener );
+            _singleton = service;
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Registers a listener of the invalidations of a topic
+     * @param strTopic The topic
+     * @param listener The listener
+     */
+    public void addListener( String strTopic, IInvalidationListener listener )
+    {
+        List<IInvalidationListener> listListeners = _mapListeners.get( strTopic );
+
+        if ( listListeners == null )
+        {
+            listListeners = new CopyOnWriteArrayList<IInvalidationListener>(  );
+
+            List<IInvalidationListener> listPrevious = _mapListeners.putIfAbsent( strTopic, listListeners );
+
+            if ( listPrevious != null )
+            {
+                listListeners = listPrevious;
+            }
+        }
+
+        listListeners.add( listener );
+    }
+
+    /**
+     * Invalidates a topic on the current node, then on the other nodes through
+     * the transport
+     * @param strTopic The topic
+     */
+    public void publish( String strTopic )
+    {
+        fireInvalidation( strTopic );
+
+        try
+        {
+            long lVersion = _transport.publish( strTopic );
+
+            synchronized ( _mapKnownVersions )
+            {
+                Long lKnownVersion = _mapKnownVersions.get( strTopic );
+
+                // No other node published the topic meanwhile : no need to invalidate it again at the next poll
+                if ( lVersion == ( ( lKnownVersion == null ) ? 1 : ( lKnownVersion + 1 ) ) )
+                {
+                    _mapKnownVersions.put( strTopic, lVersion );
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            AppLogService.error( "MyLutece - Unable to publish the invalidation of " + strTopic + " : " +
+                e.getMessage(  ), e );
+        }
+    }
+
+    /**
+     * Invalidates the topics whose version changed since the last poll
+     * @return The number of invalidated topics
+     */
+    public int poll(  )
+    {
+        Map<String, Long> mapVersions;
+
+        try
+        {
+            mapVersions = _transport.getVersions(  );
+        }
+        catch ( Exception e )
+        {
+            AppLogService.error( "MyLutece - Unable to read the invalidation versions : " + e.getMessage(  ), e );
+
+            return 0;
+        }
+
+        List<String> listTopics = new ArrayList<String>(  );
+
+        synchronized ( _mapKnownVersions )
+        {
+            for ( Map.Entry<String, Long> entry : mapVersions.entrySet(  ) )
+            {
+                Long lKnownVersion = _mapKnownVersions.put( entry.getKey(  ), entry.getValue(  ) );
+
+                if ( !entry.getValue(  ).equals( lKnownVersion ) )
+                {
+                    listTopics.add( entry.getKey(  ) );
+                }
+            }
+        }
+
+        for ( String strTopic : listTopics )
+        {
+            fireInvalidation( strTopic );
+        }
+
+        return listTopics.size(  );
+    }
+
+    /**
+     * Notifies the listeners of a topic
+     * @param strTopic The topic
+     */
+    private void fireInvalidation( String strTopic )
+    {
+        List<IInvalidationListener> listListeners = _mapListeners.get( strTopic );
+
+        if ( listListeners == null )
+        {
+            return;
+        }
+
+        for ( IInvalidationListener listener : listListeners )
+        {
+            try
+            {
+                listener.invalidate( strTopic );
+            }
+            catch ( RuntimeException e )
+            {
+                AppLogService.error( "MyLutece - Error while invalidating " + strTopic + " : " + e.getMessage(  ), e );
+            }
+        }
+    }
+
+    /**
+     * Listener dropping the caches of the plugin
+     */
+    private static final class CacheInvalidationListener implements IInvalidationListener
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void invalidate( String strTopic )
+        {
+            if ( TOPIC_SECURITY_PARAMETERS.equals( strTopic ) )
+            {
+                SecurityParameters.invalidateAll(  );
+            }
+            else if ( TOPIC_PUBLIC_URLS.equals( strTopic ) )
+            {
+                AuthenticationFilterService.getInstance(  ).refreshPublicUrls(  );
+            }
+            else if ( TOPIC_ROLES.equals( strTopic ) )
+            {
+                RoleCatalogService.getInstance(  ).refresh(  );
+            }
+            else if ( TOPIC_USER_ATTRIBUTES.equals( strTopic ) )
+            {
+                UserAttributesCacheService.getInstance(  ).resetCache(  );
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.password;
+
+
+/**
+ * Password hashing algorithm. The stored hashes are self-describing : they start
+ * with the name of the algorithm followed by a colon, then hold the cost and the
+ * salt needed to verify them.
+ */
+public interface IPasswordHasher
+{
+    /**
+     * Get the name of the algorithm, prefixing the hashes
+     * @return The name of the algorithm
+     */
+    String getAlgorithm(  );
+
+    /**
+     * Hashes a password with a new salt and the current cost
+     * @param strPassword The password
+     * @return The self-describing hash
+     */
+    String hash( String strPassword );
+
+    /**
+     * Verifies a password against a hash of this algorithm
+     * @param strPassword The password
+     * @param strHash The stored hash
+     * @return true if the password matches the hash
+     */
+    boolean verify( String strPassword, String strHash );
+
+    /**
+     * Checks whether a hash of this algorithm was computed with a lower cost than
+     * the current one
+     * @param strHash The stored hash
+     * @return true if the password should be hashed again
+     */
+    boolean needsRehash( String strHash );
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.password;
+
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Bounded thread pool computing the adaptive password hashes : logins, new passwords
+ * and password history checks. <br>
+ * When the pool and its queue are full, or when a hash is not computed in time,
+ * the operation fails at once with a {@link PasswordHashingBusyException} instead of
+ * holding a servlet thread : a burst of logins or password changes can't starve the
+ * page rendering.
+ */
+public final class PasswordHashExecutorService
+{
+    private static final String PROPERTY_ENABLED = "mylutece.password.hash.executor.enabled";
+    private static final String PROPERTY_THREADS = "mylutece.password.hash.executor.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "mylutece.password.hash.executor.queueSize";
+    private static final String PROPERTY_TIMEOUT = "mylutece.password.hash.executor.timeout";
+    private static final String PROPERTY_RETRY_AFTER = "mylutece.password.hash.executor.retryAfter";
+    private static final String MESSAGE_BUSY = "mylutece.message.login.busy";
+    private static final int DEFAULT_QUEUE_SIZE = 20;
+    private static final int DEFAULT_TIMEOUT = 5000;
+    private static final int DEFAULT_RETRY_AFTER = 5;
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final long NANOSECONDS_PER_MILLISECOND = 1000000L;
+    private static final String THREAD_NAME_PREFIX = "mylutece-hash-";
+    private static PasswordHashExecutorService _singleton;
+    private final ThreadPoolExecutor _executor;
+    private final boolean _bEnabled;
+    private final long _lTimeout;
+    private final int _nRetryAfter;
+    private final AtomicLong _lCompleted = new AtomicLong(  );
+    private final AtomicLong _lRejected = new AtomicLong(  );
+    private final AtomicLong _lTimeouts = new AtomicLong(  );
+    private final AtomicLong _lTotalLatency = new AtomicLong(  );
+    private final AtomicLong _lMaxLatency = new AtomicLong(  );
+
+    /**
+     * Private constructor
+     */
+    private PasswordHashExecutorService(  )
+    {
+        int nThreads = Math.max( 1,
+                AppPropertiesService.getPropertyInt( PROPERTY_THREADS, Runtime.getRuntime(  ).availableProcessors(  ) ) );
+        int nQueueSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) );
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, true );
+        _lTimeout = AppPropertiesService.getPropertyInt( PROPERTY_TIMEOUT, DEFAULT_TIMEOUT );
+        _nRetryAfter = AppPropertiesService.getPropertyInt( PROPERTY_RETRY_AFTER, DEFAULT_RETRY_AFTER );
+        _executor = new ThreadPoolExecutor( nThreads, nThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>( nQueueSize ), new HashThreadFactory(  ),
+                new ThreadPoolExecutor.AbortPolicy(  ) );
+        _executor.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Returns the unique instance of the service
+     * @return the instance
+     */
+    public static synchronized PasswordHashExecutorService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new PasswordHashExecutorService(  );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Shuts the pool down, when the plugin is uninstalled. The pool is created
+     * again if it is used afterwards.
+     */
+    public static synchronized void shutdown(  )
+    {
+        if ( _singleton != null )
+        {
+            _singleton._executor.shutdownNow(  );
+            _singleton = null;
+        }
+    }
+
+    /**
+     * Runs a hashing task on the pool and waits for its result
+     * @param task the task
+     * @param locale the locale of the error message
+     * @param <T> the type of the result
+     * @return the result of the task
+     * @throws PasswordHashingBusyException if the pool is saturated or the task is not done in time
+     */
+    public <T> T execute( Callable<T> task, Locale locale )
+        throws PasswordHashingBusyException
+    {
+        if ( !_bEnabled )
+        {
+            return call( task );
+        }
+
+        Future<T> future;
+
+        try
+        {
+            future = _executor.submit( new TimedTask<T>( task ) );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            _lRejected.incrementAndGet(  );
+            throw busy( locale );
+        }
+
+        try
+        {
+            return future.get( _lTimeout, TimeUnit.MILLISECONDS );
+        }
+        catch ( TimeoutException e )
+        {
+            future.cancel( true );
+            _lTimeouts.incrementAndGet(  );
+            throw busy( locale );
+        }
+        catch ( InterruptedException e )
+        {
+            future.cancel( true );
+            Thread.currentThread(  ).interrupt(  );
+            throw busy( locale );
+        }
+        catch ( ExecutionException e )
+        {
+            throw toRuntimeException( e.getCause(  ) );
+        }
+    }
+
+    /**
+     * Get the number of hashes waiting for a thread of the pool
+     * @return the queue depth
+     */
+    public int getQueueDepth(  )
+    {
+        return _executor.getQueue(  ).size(  );
+    }
+
+    /**
+     * Get the number of hashes being computed
+     * @return the number of active threads
+     */
+    public int getActiveCount(  )
+    {
+        return _executor.getActiveCount(  );
+    }
+
+    /**
+     * Get the number of computed hashes
+     * @return the number of computed hashes
+     */
+    public long getCompletedCount(  )
+    {
+        return _lCompleted.get(  );
+    }
+
+    /**
+     * Get the number of hashes rejected because the pool was saturated
+     * @return the number of rejected hashes
+     */
+    public long getRejectedCount(  )
+    {
+        return _lRejected.get(  );
+    }
+
+    /**
+     * Get the number of hashes not computed in time
+     * @return the number of timeouts
+     */
+    public long getTimeoutCount(  )
+    {
+        return _lTimeouts.get(  );
+    }
+
+    /**
+     * Get the average time of a hash
+     * @return the average latency, in milliseconds
+     */
+    public long getAverageLatency(  )
+    {
+        long lCompleted = _lCompleted.get(  );
+
+        return ( lCompleted > 0 ) ? ( _lTotalLatency.get(  ) / lCompleted / NANOSECONDS_PER_MILLISECOND ) : 0;
+    }
+
+    /**
+     * Get the longest time of a hash
+     * @return the maximum latency, in milliseconds
+     */
+    public long getMaxLatency(  )
+    {
+        return _lMaxLatency.get(  ) / NANOSECONDS_PER_MILLISECOND;
+    }
+
+    /**
+     * Builds the exception of a rejected hash
+     * @param locale the locale of the message
+     * @return the exception
+     */
+    private PasswordHashingBusyException busy( Locale locale )
+    {
+        AppLogService.info( "MyLutece - Password hashing pool saturated : " + getQueueDepth(  ) + " queued, " +
+            _lRejected.get(  ) + " rejected, " + _lTimeouts.get(  ) + " timeouts" );
+
+        String strMessage = I18nService.getLocalizedString( MESSAGE_BUSY,
+                new Object[] { Integer.toString( _nRetryAfter ) }, locale );
+
+        return new PasswordHashingBusyException( strMessage, _nRetryAfter );
+    }
+
+    /**
+     * Records the latency of a hash
+     * @param lLatency the latency, in nanoseconds
+     */
+    private void record( long lLatency )
+    {
+        _lCompleted.incrementAndGet(  );
+        _lTotalLatency.addAndGet( lLatency );
+
+        long lMax = _lMaxLatency.get(  );
+
+        while ( ( lLatency > lMax ) && !_lMaxLatency.compareAndSet( lMax, lLatency ) )
+        {
+            lMax = _lMaxLatency.get(  );
+        }
+    }
+
+    /**
+     * Runs a task in the calling thread
+     * @param task the task
+     * @param <T> the type of the result
+     * @return the result of the task
+     */
+    private static <T> T call( Callable<T> task )
+    {
+        try
+        {
+            return task.call(  );
+        }
+        catch ( Exception e )
+        {
+            throw toRuntimeException( e );
+        }
+    }
+
+    /**
+     * Wraps the failure of a task
+     * @param cause the failure
+     * @return the runtime exception to throw
+     */
+    private static RuntimeException toRuntimeException( Throwable cause )
+    {
+        if ( cause instanceof RuntimeException )
+        {
+            return (RuntimeException) cause;
+        }
+
+        return new AppException( "MyLutece - Password hashing failed : " + cause, cause );
+    }
+
+    /**
+     * Task measuring the time of the hash it computes
+     * @param <T> the type of the result
+     */
+    private final class TimedTask<T> implements Callable<T>
+    {
+        private final Callable<T> _task;
+
+        /**
+         * Constructor
+         * @param task the measured task
+         */
+        TimedTask( Callable<T> task )
+        {
+            _task = task;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public T call(  ) throws Exception
+        {
+            long lStart = System.nanoTime(  );
+
+            try
+            {
+                return _task.call(  );
+            }
+            finally
+            {
+                record( System.nanoTime(  ) - lStart );
+            }
+        }
+    }
+
+    /**
+     * Creates named daemon threads, so that the pool never prevents the webapp from stopping
+     */
+    private static final class HashThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _nCount = new AtomicInteger(  );
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + _nCount.incrementAndGet(  ) );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
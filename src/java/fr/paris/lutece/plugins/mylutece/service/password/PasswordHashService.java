@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.password;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.service.util.CryptoService;
+
+import java.io.UnsupportedEncodingException;
+
+import java.security.MessageDigest;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Adaptive hashing of the passwords. The built-in algorithm is PBKDF2 with
+ * HMAC-SHA256, whose cost is calibrated at startup to a target time per hash.
+ * Other algorithms (bcrypt, Argon2, ...) are added by declaring {@link IPasswordHasher}
+ * beans, and selected with the <code>mylutece.password.hash.algorithm</code> property.
+ * Passwords stored with a legacy digest are still verified, and a successful verification
+ * gives the hash computed with the current algorithm and cost. This plugin doesn't store
+ * the passwords : storing the upgraded hash is up to the authentication modules.
+ */
+public final class PasswordHashService
+{
+    private static final String PROPERTY_ADAPTIVE = "mylutece.password.hash.adaptive";
+    private static final String PROPERTY_ALGORITHM = "mylutece.password.hash.algorithm";
+    private static final String PROPERTY_TARGET_TIME = "mylutece.password.hash.targetTime";
+    private static final String PROPERTY_PBKDF2_ITERATIONS = "mylutece.password.hash.pbkdf2.iterations";
+    private static final String PROPERTY_PBKDF2_MIN_ITERATIONS = "mylutece.password.hash.pbkdf2.minIterations";
+    private static final int DEFAULT_TARGET_TIME = 100;
+    private static final int DEFAULT_PBKDF2_MIN_ITERATIONS = 10000;
+    private static final String SEPARATOR = ":";
+    private static final String ENCODING = "UTF-8";
+    private static PasswordHashService _singleton;
+    private final Map<String, IPasswordHasher> _mapHashers = new HashMap<String, IPasswordHasher>(  );
+    private final IPasswordHasher _defaultHasher;
+
+    /**
+     * Private constructor
+     */
+    private PasswordHashService(  )
+    {
+        int nIterations = AppPropertiesService.getPropertyInt( PROPERTY_PBKDF2_ITERATIONS, 0 );
+
+        if ( nIterations <= 0 )
+        {
+            long lStart = System.currentTimeMillis(  );
+            nIterations = Pbkdf2PasswordHasher.calibrate( AppPropertiesService.getPropertyInt( PROPERTY_TARGET_TIME,
+                        DEFAULT_TARGET_TIME ),
+                    AppPropertiesService.getPropertyInt( PROPERTY_PBKDF2_MIN_ITERATIONS, DEFAULT_PBKDF2_MIN_ITERATIONS ) );
+            AppLogService.info( "MyLutece - PBKDF2 calibrated to " + nIterations + " iterations in " +
+                ( System.currentTimeMillis(  ) - lStart ) + " ms" );
+        }
+
+        IPasswordHasher pbkdf2Hasher = new Pbkdf2PasswordHasher( nIterations );
+        register( pbkdf2Hasher );
+
+        for ( IPasswordHasher hasher : SpringContextService.getBeansOfType( IPasswordHasher.class ) )
+        {
+            register( hasher );
+        }
+
+        String strAlgorithm = AppPropertiesService.getProperty( PROPERTY_ALGORITHM, Pbkdf2PasswordHasher.ALGORITHM );
+        IPasswordHasher defaultHasher = _mapHashers.get( strAlgorithm.toUpperCase( Locale.ENGLISH ) );
+
+        if ( defaultHasher == null )
+        {
+            AppLogService.error( "MyLutece - Unknown password hashing algorithm " + strAlgorithm + ", using " +
+                Pbkdf2PasswordHasher.ALGORITHM );
+            defaultHasher = pbkdf2Hasher;
+        }
+
+        _defaultHasher = defaultHasher;
+    }
+
+    /**
+     * Get the unique instance of the service. Its creation calibrates the cost of
+     * the hashes.
+     * @return The instance
+     */
+    public static synchronized PasswordHashService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new PasswordHashService(  );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * Checks whether the encrypted passwords are hashed with the adaptive algorithm
+     * instead of the legacy digest of the security parameters
+     * @return true if the adaptive hashing is enabled
+     */
+    public static boolean isAdaptiveHashingEnabled(  )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_ADAPTIVE, false );
+    }
+
+    /**
+     * Hashes a password with the current algorithm and cost
+     * @param strPassword The password
+     * @return The self-describing hash
+     */
+    public String hash( String strPassword )
+    {
+        return _defaultHasher.hash( strPassword );
+    }
+
+    /**
+     * Checks whether a stored password is an adaptive hash of a known algorithm
+     * @param strStoredPassword The stored password
+     * @return true if the stored password is an adaptive hash
+     */
+    public boolean isAdaptiveHash( String strStoredPassword )
+    {
+        return getHasher( strStoredPassword ) != null;
+    }
+
+    /**
+     * Verifies a password against a stored password, which is either an adaptive
+     * hash or a legacy digest
+     * @param strPassword The password
+     * @param strStoredPassword The stored password
+     * @param strLegacyAlgorithm The algorithm of the legacy digests, or null if the
+     *        legacy passwords are stored in clear
+     * @param bUpgrade True to compute the new hash of a valid password stored with a
+     *        legacy digest, another algorithm or a lower cost
+     * @return The result of the verification
+     */
+    public PasswordVerification verify( String strPassword, String strStoredPassword, String strLegacyAlgorithm,
+        boolean bUpgrade )
+    {
+        if ( ( strPassword == null ) || ( strStoredPassword == null ) )
+        {
+            return new PasswordVerification( false, null );
+        }
+
+        IPasswordHasher hasher = getHasher( strStoredPassword );
+        boolean bValid;
+        boolean bRehash;
+
+        if ( hasher != null )
+        {
+            bValid = hasher.verify( strPassword, strStoredPassword );
+            bRehash = ( hasher != _defaultHasher ) || hasher.needsRehash( strStoredPassword );
+        }
+        else
+        {
+            String strLegacyPassword = ( strLegacyAlgorithm != null )
+                ? CryptoService.encrypt( strPassword, strLegacyAlgorithm ) : strPassword;
+            bValid = isEqual( strLegacyPassword, strStoredPassword );
+            bRehash = true;
+        }
+
+        return new PasswordVerification( bValid, ( bValid && bRehash && bUpgrade ) ? hash( strPassword ) : null );
+    }
+
+    /**
+     * Registers a hashing algorithm
+     * @param hasher The algorithm
+     */
+    private void register( IPasswordHasher hasher )
+    {
+        _mapHashers.put( hasher.getAlgorithm(  ).toUpperCase( Locale.ENGLISH ), hasher );
+    }
+
+    /**
+     * Get the algorithm of a stored password
+     * @param strStoredPassword The stored password
+     * @return The algorithm, or null if the stored password is not an adaptive hash
+     */
+    private IPasswordHasher getHasher( String strStoredPassword )
+    {
+        int nIndex = ( strStoredPassword != null ) ? strStoredPassword.indexOf( SEPARATOR ) : -1;
+
+        if ( nIndex <= 0 )
+        {
+            return null;
+        }
+
+        return _mapHashers.get( strStoredPassword.substring( 0, nIndex ).toUpperCase( Locale.ENGLISH ) );
+    }
+
+    /**
+     * Compares two strings in a time independent of their content
+     * @param strValue1 The first string
+     * @param strValue2 The second string
+     * @return true if the strings are equal
+     */
+    private static boolean isEqual( String strValue1, String strValue2 )
+    {
+        if ( strValue1 == null )
+        {
+            return false;
+        }
+
+        try
+        {
+            return MessageDigest.isEqual( strValue1.getBytes( ENCODING ), strValue2.getBytes( ENCODING ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            return strValue1.equals( strValue2 );
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.password;
+
+import fr.paris.lutece.portal.service.util.AppException;
+
+import java.io.UnsupportedEncodingException;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import java.util.concurrent.CancellationException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+
+/**
+ * PBKDF2 with HMAC-SHA256 (RFC 2898), implemented on {@link Mac} as the JDK 7
+ * only provides PBKDF2 with HMAC-SHA1. The hashes are stored as
+ * <code>PBKDF2WITHHMACSHA256:iterations:salt:hash</code>, salt and hash in hexadecimal.
+ * A derivation stops when its thread is interrupted, so that a hash cancelled after
+ * its timeout doesn't keep a thread of the hashing pool busy.
+ */
+public class Pbkdf2PasswordHasher implements IPasswordHasher
+{
+    /** Name of the algorithm */
+    public static final String ALGORITHM = "PBKDF2WITHHMACSHA256";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final String ENCODING = "UTF-8";
+    private static final String SEPARATOR = ":";
+    private static final int HASH_PARTS = 4;
+    private static final String PATTERN_ITERATIONS = "[1-9]\\d{0,8}";
+    private static final String PATTERN_HEX = "([0-9a-fA-F]{2})+";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final int CALIBRATION_ITERATIONS = 5000;
+    private static final int CALIBRATION_RUNS = 5;
+    private static final int INTERRUPTION_CHECK_ITERATIONS = 4096;
+    private static final long NANOSECONDS_PER_MILLISECOND = 1000000L;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray(  );
+    private final SecureRandom _random = new SecureRandom(  );
+    private final int _nIterations;
+
+    /**
+     * Constructor
+     * @param nIterations The number of iterations of the new hashes
+     */
+    public Pbkdf2PasswordHasher( int nIterations )
+    {
+        _nIterations = nIterations;
+    }
+
+    /**
+     * Measures the number of iterations taking a given time on the current hardware
+     * @param lTargetTime The target time of a hash, in milliseconds
+     * @param nMinIterations The minimum number of iterations
+     * @return The number of iterations
+     */
+    public static int calibrate( long lTargetTime, int nMinIterations )
+    {
+        byte[] salt = new byte[SALT_LENGTH];
+        long lBestTime = Long.MAX_VALUE;
+
+        // The first runs warm the JIT up : keep the fastest one
+        for ( int i = 0; i < CALIBRATION_RUNS; i++ )
+        {
+            long lStart = System.nanoTime(  );
+            derive( toBytes( ALGORITHM ), salt, CALIBRATION_ITERATIONS, HASH_LENGTH );
+            lBestTime = Math.min( lBestTime, System.nanoTime(  ) - lStart );
+        }
+
+        long lIterations = ( lTargetTime * NANOSECONDS_PER_MILLISECOND * CALIBRATION_ITERATIONS ) / Math.max( lBestTime, 1 );
+
+        return (int) Math.max( nMinIterations, Math.min( lIterations, Integer.MAX_VALUE ) );
+    }
+
+    /**
+     * Get the number of iterations of the new hashes
+     * @return The number of iterations
+     */
+    public int getIterations(  )
+    {
+        return _nIterations;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAlgorithm(  )
+    {
+        return ALGORITHM;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String hash( String strPassword )
+    {
+        byte[] salt = new byte[SALT_LENGTH];
+        _random.nextBytes( salt );
+
+        byte[] hash = derive( toBytes( strPassword ), salt, _nIterations, HASH_LENGTH );
+
+        return ALGORITHM + SEPARATOR + _nIterations + SEPARATOR + toHex( salt ) + SEPARATOR + toHex( hash );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean verify( String strPassword, String strHash )
+    {
+        String[] parts = split( strHash );
+
+        if ( parts == null )
+        {
+            return false;
+        }
+
+        byte[] expected = fromHex( parts[3] );
+        byte[] actual = derive( toBytes( strPassword ), fromHex( parts[2] ), Integer.parseInt( parts[1] ),
+                expected.length );
+
+        return MessageDigest.isEqual( expected, actual );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean needsRehash( String strHash )
+    {
+        String[] parts = split( strHash );
+
+        return ( parts == null ) || ( Integer.parseInt( parts[1] ) < _nIterations );
+    }
+
+    /**
+     * Splits a hash into its parts
+     * @param strHash The hash
+     * @return The parts, or null if the hash is malformed
+     */
+    private static String[] split( String strHash )
+    {
+        String[] parts = ( strHash != null ) ? strHash.split( SEPARATOR ) : null;
+
+        if ( ( parts == null ) || ( parts.length != HASH_PARTS ) || !ALGORITHM.equalsIgnoreCase( parts[0] ) ||
+                !parts[1].matches( PATTERN_ITERATIONS ) || !parts[2].matches( PATTERN_HEX ) ||
+                !parts[3].matches( PATTERN_HEX ) )
+        {
+            return null;
+        }
+
+        return parts;
+    }
+
+    /**
+     * Derives a key with PBKDF2
+     * @param password The password
+     * @param salt The salt
+     * @param nIterations The number of iterations
+     * @param nLength The length of the key
+     * @return The key
+     * @throws CancellationException If the thread is interrupted
+     */
+    private static byte[] derive( byte[] password, byte[] salt, int nIterations, int nLength )
+    {
+        try
+        {
+            Mac mac = Mac.getInstance( MAC_ALGORITHM );
+
+            // HMAC pads the key with zeros, so an empty key is the same as a single zero byte,
+            // which SecretKeySpec accepts
+            mac.init( new SecretKeySpec( ( password.length > 0 ) ? password : new byte[1], MAC_ALGORITHM ) );
+
+            int nMacLength = mac.getMacLength(  );
+            byte[] key = new byte[nLength];
+            byte[] block = new byte[nMacLength];
+            byte[] u = new byte[nMacLength];
+
+            for ( int nBlock = 1, nOffset = 0; nOffset < nLength; nBlock++, nOffset += nMacLength )
+            {
+                mac.update( salt );
+                mac.update( (byte) ( nBlock >>> 24 ) );
+                mac.update( (byte) ( nBlock >>> 16 ) );
+                mac.update( (byte) ( nBlock >>> 8 ) );
+                mac.update( (byte) nBlock );
+                mac.doFinal( u, 0 );
+                System.arraycopy( u, 0, block, 0, nMacLength );
+
+                for ( int i = 1; i < nIterations; i++ )
+                {
+                    if ( ( ( i % INTERRUPTION_CHECK_ITERATIONS ) == 0 ) && Thread.currentThread(  ).isInterrupted(  ) )
+                    {
+                        throw new CancellationException( "MyLutece - Password hashing interrupted" );
+                    }
+
+                    mac.update( u );
+                    mac.doFinal( u, 0 );
+
+                    for ( int j = 0; j < nMacLength; j++ )
+                    {
+                        block[j] ^= u[j];
+                    }
+                }
+
+                System.arraycopy( block, 0, key, nOffset, Math.min( nMacLength, nLength - nOffset ) );
+            }
+
+            return key;
+        }
+        catch ( GeneralSecurityException e )
+        {
+            throw new AppException( "MyLutece - Unable to hash the password : " + e.getMessage(  ), e );
+        }
+    }
+
+    /**
+     * Encodes a password
+     * @param strPassword The password
+     * @return The bytes of the password
+     */
+    private static byte[] toBytes( String strPassword )
+    {
+        try
+        {
+            return ( strPassword != null ) ? strPassword.getBytes( ENCODING ) : new byte[0];
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new AppException( e.getMessage(  ), e );
+        }
+    }
+
+    /**
+     * Encodes bytes in hexadecimal
+     * @param bytes The bytes
+     * @return The hexadecimal string
+     */
+    private static String toHex( byte[] bytes )
+    {
+        char[] chars = new char[bytes.length * 2];
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            chars[2 * i] = HEX_DIGITS[( bytes[i] >> 4 ) & 0xF];
+            chars[( 2 * i ) + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+
+        return new String( chars );
+    }
+
+    /**
+     * Decodes an hexadecimal string
+     * @param strHex The hexadecimal string, of even length
+     * @return The bytes
+     */
+    private static byte[] fromHex( String strHex )
+    {
+        byte[] bytes = new byte[strHex.length(  ) / 2];
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            bytes[i] = (byte) Integer.parseInt( strHex.substring( 2 * i, ( 2 * i ) + 2 ), 16 );
+        }
+
+        return bytes;
+    }
+}
@@ -37,9 +37,12 @@ import fr.paris.lutece.portal.business.user.AdminUser;
 import fr.paris.lutece.portal.service.datastore.DatastoreService;
 import fr.paris.lutece.portal.service.security.SecurityService;
 import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.ReferenceItem;
 import fr.paris.lutece.util.ReferenceList;
 
+import org.apache.commons.lang.StringUtils;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -61,7 +64,10 @@ public final class AuthenticationFilterService
     public static final String MARK_PORTAL_AUTHENTICATION_REQUIRED = "portal_authentication_required";
     private static final String MARK_LOCALE = "locale";
     private static final String MARK_WEBAPP_URL = "webapp_url";
+    private static final String PROPERTY_RELATIVE_URL_MATCHING = "mylutece.security.publicUrl.relativeMatching";
     private static AuthenticationFilterService _singleton = new AuthenticationFilterService(  );
+    private volatile PublicUrlMatcher _publicUrlMatcher;
+    private volatile String _strSiteMessageUrl;
 
     /**
      * Private constructor
@@ -124,4 +130,112 @@ public final class AuthenticationFilterService
 
         return lstPublicUrl;
     }
+
+    /**
+     * Gets the compiled matcher of the public Urls. The matcher is built on first
+     * use and then only rebuilt by {@link #refreshPublicUrls()}
+     * @return the public Urls matcher
+     */
+    public PublicUrlMatcher getPublicUrlMatcher(  )
+    {
+        PublicUrlMatcher matcher = _publicUrlMatcher;
+
+        if ( matcher == null )
+        {
+            matcher = refreshPublicUrls(  );
+        }
+
+        return matcher;
+    }
+
+    /**
+     * Checks whether the requested Url is public, ie is the site message Url or
+     * matches one of the public Urls. Decisions are cached by
+     * {@link PublicUrlDecisionCacheService}.
+     * @param requestedUrl the view of the requested Url
+     * @return true if the Url can be accessed without authentication
+     */
+    public boolean isPublicUrl( RequestedUrl requestedUrl )
+    {
+        if ( _strSiteMessageUrl == null )
+        {
+            initSiteMessageUrl( requestedUrl );
+        }
+
+        PublicUrlMatcher matcher = getPublicUrlMatcher(  );
+        PublicUrlDecisionCacheService cacheService = PublicUrlDecisionCacheService.getInstance(  );
+
+        if ( !cacheService.isCacheEnable(  ) )
+        {
+            return matcher.matches( requestedUrl );
+        }
+
+        String strKey = cacheService.getKey( requestedUrl, matcher );
+        Boolean bPublic = cacheService.getDecision( strKey );
+
+        if ( bPublic == null )
+        {
+            // The key holds the version of the matcher : a decision stored after the
+            // matcher has been replaced is never read by the requests using the new one
+            bPublic = matcher.matches( requestedUrl );
+            cacheService.putDecision( strKey, bPublic );
+        }
+
+        return bPublic;
+    }
+
+    /**
+     * Reloads the public Urls from the datastore and atomically replaces the
+     * compiled matcher. Must be called whenever a public Url is created, modified
+     * or removed.
+     * @return the new public Urls matcher
+     */
+    public synchronized PublicUrlMatcher refreshPublicUrls(  )
+    {
+        List<String> listPatterns = getPublicUrls(  );
+
+        if ( StringUtils.isNotEmpty( _strSiteMessageUrl ) )
+        {
+            listPatterns.add( _strSiteMessageUrl );
+        }
+
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( listPatterns, isRelativeUrlMatching(  ) );
+        _publicUrlMatcher = matcher;
+        PublicUrlDecisionCacheService.getInstance(  ).resetCache(  );
+
+        return matcher;
+    }
+
+    /**
+     * Registers the site message Url among the public Urls. The site message Url
+     * is the base Url followed by a constant part : as the requested Url starts with
+     * the same base Url, only the constant part is kept.
+     * @param requestedUrl the view of the requested Url
+     */
+    private synchronized void initSiteMessageUrl( RequestedUrl requestedUrl )
+    {
+        if ( _strSiteMessageUrl == null )
+        {
+            String strSiteMessageUrl = AppPathService.getSiteMessageUrl( requestedUrl.getRequest(  ) );
+            String strBaseUrl = requestedUrl.getBaseUrl(  );
+
+            if ( ( strSiteMessageUrl != null ) && strSiteMessageUrl.startsWith( strBaseUrl ) )
+            {
+                strSiteMessageUrl = strSiteMessageUrl.substring( strBaseUrl.length(  ) );
+            }
+
+            _strSiteMessageUrl = ( strSiteMessageUrl != null ) ? strSiteMessageUrl : "";
+            refreshPublicUrls(  );
+        }
+    }
+
+    /**
+     * Tells whether absolute public Urls are matched on their path only, without
+     * building the absolute requested Url
+     * @return true if the relative matching is enabled
+     */
+    public boolean isRelativeUrlMatching(  )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_RELATIVE_URL_MATCHING, false );
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.security;
+
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+import java.util.List;
+
+
+/**
+ * Cache of the public / private decisions of the authentication filter. Keys are
+ * built from the servlet path and from the request parameters referenced by the
+ * public Urls only, so that a few keys cover most of the traffic. Keys start with
+ * the version of the matcher that computed the decision, and their parts are
+ * escaped so that a parameter value can't forge the key of another request.
+ */
+public final class PublicUrlDecisionCacheService extends AbstractCacheableService
+{
+    private static final String SERVICE_NAME = "MyLutece Public Url Decision Cache Service";
+    private static final char KEY_SEPARATOR = '&';
+    private static final char KEY_EQUAL = '=';
+    private static final char KEY_ESCAPE = '%';
+    private static final String ESCAPED_SEPARATOR = "%26";
+    private static final String ESCAPED_EQUAL = "%3D";
+    private static final String ESCAPED_ESCAPE = "%25";
+    private static PublicUrlDecisionCacheService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private PublicUrlDecisionCacheService(  )
+    {
+        initCache(  );
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static synchronized PublicUrlDecisionCacheService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new PublicUrlDecisionCacheService(  );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName(  )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Builds the cache key of a request
+     * @param requestedUrl the view of the requested url
+     * @param matcher the matcher giving the relevant parameters
+     * @return the cache key
+     */
+    public String getKey( RequestedUrl requestedUrl, PublicUrlMatcher matcher )
+    {
+        StringBuilder sbKey = new StringBuilder(  );
+        sbKey.append( matcher.getVersion(  ) );
+
+        if ( matcher.isBaseUrlDependent(  ) )
+        {
+            sbKey.append( KEY_SEPARATOR );
+            appendEscaped( sbKey, requestedUrl.getBaseUrl(  ) );
+        }
+
+        sbKey.append( KEY_SEPARATOR );
+        appendEscaped( sbKey, requestedUrl.getServletPath(  ) );
+
+        List<String> listParameterNames = matcher.getParameterNames(  );
+
+        for ( int i = 0; i < listParameterNames.size(  ); i++ )
+        {
+            String strParameterName = listParameterNames.get( i );
+            String strValue = requestedUrl.getParameter( strParameterName );
+
+            if ( strValue != null )
+            {
+                sbKey.append( KEY_SEPARATOR );
+                appendEscaped( sbKey, strParameterName );
+                sbKey.append( KEY_EQUAL );
+                appendEscaped( sbKey, strValue );
+            }
+        }
+
+        return sbKey.toString(  );
+    }
+
+    /**
+     * Appends a part of the key, escaping the characters used by the key structure
+     * @param sbKey the key
+     * @param strPart the part to append
+     */
+    private static void appendEscaped( StringBuilder sbKey, String strPart )
+    {
+        for ( int i = 0; i < strPart.length(  ); i++ )
+        {
+            char c = strPart.charAt( i );
+
+            switch ( c )
+            {
+                case KEY_SEPARATOR:
+                    sbKey.append( ESCAPED_SEPARATOR );
+
+                    break;
+
+                case KEY_EQUAL:
+                    sbKey.append( ESCAPED_EQUAL );
+
+                    break;
+
+                case KEY_ESCAPE:
+                    sbKey.append( ESCAPED_ESCAPE );
+
+                    break;
+
+                default:
+                    sbKey.append( c );
+            }
+        }
+    }
+
+    /**
+     * Gets the cached decision for a key
+     * @param strKey the key
+     * @return {@link Boolean#TRUE} if the url is public, {@link Boolean#FALSE} if it is private,
+     *         null if the decision is not in cache
+     */
+    public Boolean getDecision( String strKey )
+    {
+        return (Boolean) getFromCache( strKey );
+    }
+
+    /**
+     * Stores a decision
+     * @param strKey the key
+     * @param bPublic true if the url is public
+     */
+    public void putDecision( String strKey, boolean bPublic )
+    {
+        putInCache( strKey, Boolean.valueOf( bPublic ) );
+    }
+}
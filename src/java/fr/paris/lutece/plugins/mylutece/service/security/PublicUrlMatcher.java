@@ -0,0 +1,571 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.security;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.servlet.http.HttpServletRequest;
+
+
+/**
+ * Immutable compiled form of the public URL list of the authentication filter.<br>
+ * Patterns are compiled once when the list changes, so that matching a request
+ * neither reads the datastore nor allocates objects :
+ * <ul>
+ * <li>exact patterns without parameters are stored in a set of servlet paths</li>
+ * <li>patterns ending with <code>*</code> without parameters are stored in a prefix trie</li>
+ * <li>Ant-style patterns (<code>ant:</code> prefix, <code>ant:jsp/site/plugins/**&#47;Do*.jsp</code>)
+ * and regular expressions (<code>regex:</code> prefix) are combined into a single regular expression
+ * on the path</li>
+ * <li>patterns with parameters or absolute patterns keep their parameter names precomputed</li>
+ * </ul>
+ * In relative mode, absolute patterns are reduced to their path and compared with the
+ * context path and the servlet path, so that no absolute URL is ever built. <br>
+ * An unprefixed pattern keeps its historical meaning : a star in its path matches any URL
+ * starting with the text before the first star.
+ */
+public final class PublicUrlMatcher
+{
+    private static final String URL_INTERROGATIVE = "?";
+    private static final String URL_AMPERSAND = "&";
+    private static final String URL_EQUAL = "=";
+    private static final String URL_STAR = "*";
+    private static final String URL_SLASH = "/";
+    private static final String PREFIX_HTTP = "http://";
+    private static final String PREFIX_HTTPS = "https://";
+    private static final String PREFIX_REGEX = "regex:";
+    private static final String PREFIX_ANT = "ant:";
+    private static final String ANT_DOUBLE_STAR = "**";
+    private static final String ANT_DOUBLE_STAR_DIRECTORY = "**/";
+    private static final String REGEX_ANY_DIRECTORIES = "(?:.*/)?";
+    private static final String REGEX_ANY = ".*";
+    private static final String REGEX_ANY_IN_SEGMENT = "[^/]*";
+    private static final String REGEX_GROUP_START = "(?:";
+    private static final String REGEX_GROUP_END = ")";
+    private static final String REGEX_ALTERNATION = "|";
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong(  );
+    private static final PublicUrlMatcher EMPTY = new PublicUrlMatcher( Collections.<String>emptyList(  ), true );
+    private final Set<String> _setExactPaths;
+    private final PrefixNode _prefixRoot;
+    private final Pattern _pathPattern;
+    private final CompiledUrlPattern[] _arrayParameterizedPatterns;
+    private final boolean _bAbsolutePatterns;
+    private final List<String> _listParameterNames;
+    private final long _lVersion = VERSION_SEQUENCE.incrementAndGet(  );
+
+    /**
+     * Compiles a list of public URL patterns
+     * @param listPatterns the patterns, relative to the webapp root or absolute
+     * @param bRelativeMatching true to match absolute patterns on their path only
+     */
+    private PublicUrlMatcher( Collection<String> listPatterns, boolean bRelativeMatching )
+    {
+        Set<String> setExactPaths = new HashSet<String>(  );
+        PrefixNode prefixRoot = new PrefixNode(  );
+        List<CompiledUrlPattern> listParameterizedPatterns = new ArrayList<CompiledUrlPattern>(  );
+        boolean bAbsolutePatterns = false;
+        Set<String> setParameterNames = new TreeSet<String>(  );
+        StringBuilder sbPathPattern = new StringBuilder(  );
+
+        for ( String strPattern : listPatterns )
+        {
+            if ( strPattern == null )
+            {
+                continue;
+            }
+
+            boolean bAbsolute = strPattern.startsWith( PREFIX_HTTP ) || strPattern.startsWith( PREFIX_HTTPS );
+            int nInterrogative = strPattern.indexOf( URL_INTERROGATIVE );
+            int nStar = strPattern.indexOf( URL_STAR );
+
+            if ( strPattern.startsWith( PREFIX_REGEX ) )
+            {
+                appendPathPattern( sbPathPattern, strPattern.substring( PREFIX_REGEX.length(  ) ) );
+            }
+            else if ( strPattern.startsWith( PREFIX_ANT ) )
+            {
+                appendPathPattern( sbPathPattern, antToRegex( strPattern.substring( PREFIX_ANT.length(  ) ) ) );
+            }
+            else if ( !bAbsolute && ( nStar >= 0 ) && ( ( nInterrogative < 0 ) || ( nStar < nInterrogative ) ) )
+            {
+                // The star lies in the path : parameters can't change the result
+                prefixRoot.add( URL_SLASH + strPattern.substring( 0, nStar ) );
+            }
+            else if ( !bAbsolute && ( nInterrogative < 0 ) )
+            {
+                setExactPaths.add( URL_SLASH + strPattern );
+            }
+            else
+            {
+                CompiledUrlPattern pattern = new CompiledUrlPattern( strPattern, bAbsolute, bRelativeMatching );
+                listParameterizedPatterns.add( pattern );
+                Collections.addAll( setParameterNames, pattern._arrayParameterNames );
+                bAbsolutePatterns |= ( bAbsolute && !bRelativeMatching );
+            }
+        }
+
+        _setExactPaths = setExactPaths;
+        _prefixRoot = prefixRoot;
+        _pathPattern = ( sbPathPattern.length(  ) > 0 ) ? Pattern.compile( sbPathPattern.toString(  ) ) : null;
+        _arrayParameterizedPatterns = listParameterizedPatterns.toArray( new CompiledUrlPattern[listParameterizedPatterns.size(  )] );
+        _bAbsolutePatterns = bAbsolutePatterns;
+        _listParameterNames = Collections.unmodifiableList( new ArrayList<String>( setParameterNames ) );
+    }
+
+    /**
+     * Compiles a list of public URL patterns
+     * @param listPatterns the patterns, relative to the webapp root or absolute
+     * @param bRelativeMatching true to match absolute patterns on their path only,
+     *            false to compare them with the absolute requested URL
+     * @return the compiled matcher
+     */
+    public static PublicUrlMatcher compile( Collection<String> listPatterns, boolean bRelativeMatching )
+    {
+        if ( ( listPatterns == null ) || listPatterns.isEmpty(  ) )
+        {
+            return EMPTY;
+        }
+
+        return new PublicUrlMatcher( listPatterns, bRelativeMatching );
+    }
+
+    /**
+     * Checks whether the requested URL matches one of the compiled patterns
+     * @param request the HTTP request
+     * @return true if the URL matches a pattern, false otherwise
+     */
+    public boolean matches( HttpServletRequest request )
+    {
+        return matches( RequestedUrl.getRequestedUrl( request ) );
+    }
+
+    /**
+     * Checks whether the requested URL matches one of the compiled patterns
+     * @param requestedUrl the view of the requested URL
+     * @return true if the URL matches a pattern, false otherwise
+     */
+    public boolean matches( RequestedUrl requestedUrl )
+    {
+        String strServletPath = requestedUrl.getServletPath(  );
+
+        if ( _setExactPaths.contains( strServletPath ) || _prefixRoot.matches( strServletPath ) )
+        {
+            return true;
+        }
+
+        // The servlet path starts with a slash that is not part of the patterns
+        if ( ( _pathPattern != null ) && ( strServletPath.length(  ) > 0 ) &&
+                _pathPattern.matcher( strServletPath ).region( 1, strServletPath.length(  ) ).matches(  ) )
+        {
+            return true;
+        }
+
+        if ( _arrayParameterizedPatterns.length == 0 )
+        {
+            return false;
+        }
+
+        // The base URL is only needed by absolute patterns
+        String strBaseUrl = _bAbsolutePatterns ? requestedUrl.getBaseUrl(  ) : null;
+
+        for ( CompiledUrlPattern pattern : _arrayParameterizedPatterns )
+        {
+            if ( pattern.matches( requestedUrl, strServletPath, strBaseUrl ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Converts an Ant-style pattern to a regular expression. <code>**&#47;</code> matches
+     * any number of directories, <code>**</code> any characters and <code>*</code> any
+     * characters but a slash.
+     * @param strPattern the Ant-style pattern
+     * @return the regular expression
+     */
+    private static String antToRegex( String strPattern )
+    {
+        // Ant patterns are commonly written from the root : the servlet path is compared without its slash
+        String strPath = strPattern.startsWith( URL_SLASH ) ? strPattern.substring( 1 ) : strPattern;
+        StringBuilder sbRegex = new StringBuilder(  );
+        int nStart = 0;
+
+        for ( int i = 0; i < strPath.length(  ); i++ )
+        {
+            if ( strPath.charAt( i ) == URL_STAR.charAt( 0 ) )
+            {
+                if ( i > nStart )
+                {
+                    sbRegex.append( Pattern.quote( strPath.substring( nStart, i ) ) );
+                }
+
+                if ( strPath.startsWith( ANT_DOUBLE_STAR_DIRECTORY, i ) )
+                {
+                    sbRegex.append( REGEX_ANY_DIRECTORIES );
+                    i += ( ANT_DOUBLE_STAR_DIRECTORY.length(  ) - 1 );
+                }
+                else if ( strPath.startsWith( ANT_DOUBLE_STAR, i ) )
+                {
+                    sbRegex.append( REGEX_ANY );
+                    i += ( ANT_DOUBLE_STAR.length(  ) - 1 );
+                }
+                else
+                {
+                    sbRegex.append( REGEX_ANY_IN_SEGMENT );
+                }
+
+                nStart = i + 1;
+            }
+        }
+
+        if ( nStart < strPath.length(  ) )
+        {
+            sbRegex.append( Pattern.quote( strPath.substring( nStart ) ) );
+        }
+
+        return sbRegex.toString(  );
+    }
+
+    /**
+     * Adds a regular expression to the combined path pattern. Invalid expressions
+     * are logged and ignored.
+     * @param sbPathPattern the combined path pattern
+     * @param strRegex the regular expression
+     */
+    private static void appendPathPattern( StringBuilder sbPathPattern, String strRegex )
+    {
+        try
+        {
+            Pattern.compile( strRegex );
+        }
+        catch ( PatternSyntaxException e )
+        {
+            AppLogService.error( "MyLutece : invalid public url pattern ignored " + strRegex, e );
+
+            return;
+        }
+
+        if ( sbPathPattern.length(  ) > 0 )
+        {
+            sbPathPattern.append( REGEX_ALTERNATION );
+        }
+
+        sbPathPattern.append( REGEX_GROUP_START ).append( strRegex ).append( REGEX_GROUP_END );
+    }
+
+    /**
+     * Gets the names of the request parameters that can change the result of
+     * {@link #matches(RequestedUrl)}
+     * @return the sorted parameter names, as an unmodifiable list
+     */
+    public List<String> getParameterNames(  )
+    {
+        return _listParameterNames;
+    }
+
+    /**
+     * Tells whether the result of {@link #matches(RequestedUrl)} depends on the
+     * base Url of the webapp, ie if absolute patterns are compared with absolute Urls
+     * @return true if the base Url is used
+     */
+    public boolean isBaseUrlDependent(  )
+    {
+        return _bAbsolutePatterns;
+    }
+
+    /**
+     * Gets the version of the matcher. Each compiled matcher has its own version,
+     * so that decisions computed with a replaced matcher can't be mixed up with
+     * the current ones
+     * @return the version
+     */
+    public long getVersion(  )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Node of the prefix trie. Children are kept in parallel arrays to keep the
+     * lookup free of boxing.
+     */
+    private static final class PrefixNode
+    {
+        private char[] _keys = new char[0];
+        private PrefixNode[] _children = new PrefixNode[0];
+        private boolean _bTerminal;
+
+        /**
+         * Adds a prefix under this node
+         * @param strPrefix the prefix
+         */
+        void add( String strPrefix )
+        {
+            PrefixNode node = this;
+
+            for ( int i = 0; i < strPrefix.length(  ); i++ )
+            {
+                node = node.getOrCreateChild( strPrefix.charAt( i ) );
+            }
+
+            node._bTerminal = true;
+        }
+
+        /**
+         * Gets the child for a character, creating it if needed
+         * @param c the character
+         * @return the child node
+         */
+        private PrefixNode getOrCreateChild( char c )
+        {
+            PrefixNode child = getChild( c );
+
+            if ( child == null )
+            {
+                int nLength = _keys.length;
+                char[] keys = new char[nLength + 1];
+                PrefixNode[] children = new PrefixNode[nLength + 1];
+                System.arraycopy( _keys, 0, keys, 0, nLength );
+                System.arraycopy( _children, 0, children, 0, nLength );
+                child = new PrefixNode(  );
+                keys[nLength] = c;
+                children[nLength] = child;
+                _keys = keys;
+                _children = children;
+            }
+
+            return child;
+        }
+
+        /**
+         * Gets the child for a character
+         * @param c the character
+         * @return the child node, or null
+         */
+        private PrefixNode getChild( char c )
+        {
+            for ( int i = 0; i < _keys.length; i++ )
+            {
+                if ( _keys[i] == c )
+                {
+                    return _children[i];
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Checks whether a prefix stored in the trie starts the given string
+         * @param strValue the value
+         * @return true if a stored prefix starts the value
+         */
+        boolean matches( String strValue )
+        {
+            PrefixNode node = this;
+
+            for ( int i = 0; !node._bTerminal; i++ )
+            {
+                if ( i == strValue.length(  ) )
+                {
+                    return false;
+                }
+
+                node = node.getChild( strValue.charAt( i ) );
+
+                if ( node == null )
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * A pattern that depends on the request parameters or on the base URL.<br>
+     * The requested URL is built as <code>[base url]path?name1=value1&amp;name2=value2</code>
+     * with the parameters named in the pattern, in the pattern order. This URL is
+     * never materialized : it is compared segment by segment with the target.<br>
+     * A relative matching of an absolute pattern replaces the base URL by the context path.
+     */
+    private static final class CompiledUrlPattern
+    {
+        private static final int MISMATCH = -1;
+        private static final int EXHAUSTED = -2;
+        private static final String SCHEME_SEPARATOR = "://";
+        private final String _strTarget;
+        private final String[] _arrayParameterNames;
+        private final boolean _bPrefix;
+        private final boolean _bAbsolute;
+        private final boolean _bContextRelative;
+
+        /**
+         * Constructor
+         * @param strPattern the pattern
+         * @param bAbsolute true if the pattern is an absolute URL
+         * @param bRelativeMatching true to match an absolute pattern on its path only
+         */
+        CompiledUrlPattern( String strPattern, boolean bAbsolute, boolean bRelativeMatching )
+        {
+            _bContextRelative = bAbsolute && bRelativeMatching;
+            _bAbsolute = bAbsolute && !bRelativeMatching;
+
+            String strTarget = _bContextRelative ? getPath( strPattern ) : strPattern;
+            int nStar = strTarget.indexOf( URL_STAR );
+            _bPrefix = nStar >= 0;
+            _strTarget = _bPrefix ? strTarget.substring( 0, nStar ) : strTarget;
+
+            List<String> listParameterNames = new ArrayList<String>(  );
+            int nInterrogative = strPattern.indexOf( URL_INTERROGATIVE );
+
+            if ( nInterrogative >= 0 )
+            {
+                for ( String strParamPatternValue : strPattern.substring( nInterrogative + 1 ).split( URL_AMPERSAND ) )
+                {
+                    listParameterNames.add( strParamPatternValue.split( URL_EQUAL )[0] );
+                }
+            }
+
+            _arrayParameterNames = listParameterNames.toArray( new String[listParameterNames.size(  )] );
+        }
+
+        /**
+         * Gets the path of an absolute URL, starting with a slash
+         * @param strUrl the absolute URL
+         * @return the path of the URL
+         */
+        private static String getPath( String strUrl )
+        {
+            int nSlash = strUrl.indexOf( URL_SLASH, strUrl.indexOf( SCHEME_SEPARATOR ) + SCHEME_SEPARATOR.length(  ) );
+
+            return ( nSlash >= 0 ) ? strUrl.substring( nSlash ) : URL_SLASH;
+        }
+
+        /**
+         * Checks whether the request matches this pattern
+         * @param requestedUrl the view of the requested URL
+         * @param strServletPath the servlet path of the request
+         * @param strBaseUrl the base URL of the webapp, only used by absolute patterns
+         * @return true if the request matches
+         */
+        boolean matches( RequestedUrl requestedUrl, String strServletPath, String strBaseUrl )
+        {
+            int nPosition = 0;
+
+            if ( _bAbsolute )
+            {
+                nPosition = consume( strBaseUrl, 0, nPosition );
+                // The servlet path starts with a slash that is not part of the patterns
+                nPosition = consume( strServletPath, 1, nPosition );
+            }
+            else if ( _bContextRelative )
+            {
+                nPosition = consume( requestedUrl.getContextPath(  ), 0, nPosition );
+                nPosition = consume( strServletPath, 0, nPosition );
+            }
+            else
+            {
+                nPosition = consume( strServletPath, 1, nPosition );
+            }
+
+            boolean bFirst = true;
+
+            for ( int i = 0; ( i < _arrayParameterNames.length ) && ( nPosition >= 0 ); i++ )
+            {
+                String strValue = requestedUrl.getParameter( _arrayParameterNames[i] );
+
+                if ( strValue != null )
+                {
+                    nPosition = consume( bFirst ? URL_INTERROGATIVE : URL_AMPERSAND, 0, nPosition );
+                    nPosition = consume( _arrayParameterNames[i], 0, nPosition );
+                    nPosition = consume( URL_EQUAL, 0, nPosition );
+                    nPosition = consume( strValue, 0, nPosition );
+                    bFirst = false;
+                }
+            }
+
+            return ( nPosition == EXHAUSTED ) || ( nPosition == _strTarget.length(  ) );
+        }
+
+        /**
+         * Compares a segment of the requested URL with the target
+         * @param strSegment the segment
+         * @param nFrom the first character of the segment to consider
+         * @param nPosition the current position in the target, or a negative status
+         * @return the new position in the target, {@link #MISMATCH} if the segment differs from the
+         *         target, or {@link #EXHAUSTED} if a prefix target has been fully matched
+         */
+        private int consume( String strSegment, int nFrom, int nPosition )
+        {
+            if ( nPosition < 0 )
+            {
+                return nPosition;
+            }
+
+            int nCurrent = nPosition;
+
+            for ( int i = nFrom; i < strSegment.length(  ); i++ )
+            {
+                if ( nCurrent == _strTarget.length(  ) )
+                {
+                    return _bPrefix ? EXHAUSTED : MISMATCH;
+                }
+
+                if ( _strTarget.charAt( nCurrent ) != strSegment.charAt( i ) )
+                {
+                    return MISMATCH;
+                }
+
+                nCurrent++;
+            }
+
+            return nCurrent;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.security;
+
+import fr.paris.lutece.portal.service.util.AppPathService;
+
+import javax.servlet.http.HttpServletRequest;
+
+
+/**
+ * Normalized view of the requested URL, computed once per request and shared by
+ * all the checks of the authentication filter. The base URL of the webapp is
+ * only computed if a check actually needs it.
+ */
+public final class RequestedUrl
+{
+    private static final String ATTRIBUTE_REQUESTED_URL = RequestedUrl.class.getName(  );
+    private final HttpServletRequest _request;
+    private final String _strServletPath;
+    private String _strBaseUrl;
+
+    /**
+     * Constructor
+     * @param request the HTTP request
+     */
+    private RequestedUrl( HttpServletRequest request )
+    {
+        _request = request;
+        _strServletPath = ( request.getServletPath(  ) != null ) ? request.getServletPath(  ) : "";
+    }
+
+    /**
+     * Gets the view of the requested URL attached to the request, creating it if needed
+     * @param request the HTTP request
+     * @return the view of the requested URL
+     */
+    public static RequestedUrl getRequestedUrl( HttpServletRequest request )
+    {
+        RequestedUrl requestedUrl = (RequestedUrl) request.getAttribute( ATTRIBUTE_REQUESTED_URL );
+
+        if ( requestedUrl == null )
+        {
+            requestedUrl = new RequestedUrl( request );
+            request.setAttribute( ATTRIBUTE_REQUESTED_URL, requestedUrl );
+        }
+
+        return requestedUrl;
+    }
+
+    /**
+     * Gets the HTTP request
+     * @return the HTTP request
+     */
+    public HttpServletRequest getRequest(  )
+    {
+        return _request;
+    }
+
+    /**
+     * Gets the servlet path, starting with a slash
+     * @return the servlet path
+     */
+    public String getServletPath(  )
+    {
+        return _strServletPath;
+    }
+
+    /**
+     * Gets the context path of the webapp
+     * @return the context path
+     */
+    public String getContextPath(  )
+    {
+        return _request.getContextPath(  );
+    }
+
+    /**
+     * Gets a parameter of the request
+     * @param strName the parameter name
+     * @return the parameter value, or null
+     */
+    public String getParameter( String strName )
+    {
+        return _request.getParameter( strName );
+    }
+
+    /**
+     * Gets the base URL of the webapp, computed on first call
+     * @return the base URL
+     */
+    public String getBaseUrl(  )
+    {
+        if ( _strBaseUrl == null )
+        {
+            _strBaseUrl = AppPathService.getBaseUrl( _request );
+        }
+
+        return _strBaseUrl;
+    }
+}
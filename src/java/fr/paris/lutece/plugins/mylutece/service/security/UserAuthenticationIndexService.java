@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.security;
+
+import fr.paris.lutece.plugins.mylutece.service.AbstractExpiringCacheService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+
+/**
+ * Index of the authentication owning each user login, used by MultiLuteceAuthentication to
+ * query a single authentication instead of all of them. Logins known by no authentication are
+ * remembered for a short time only, so that new accounts are found quickly.
+ */
+public final class UserAuthenticationIndexService extends AbstractExpiringCacheService
+{
+    /**
+     * Value returned for the logins known by no authentication
+     */
+    public static final String NO_AUTHENTICATION = "";
+    private static final String SERVICE_NAME = "MyLutece User Authentication Index Cache Service";
+    private static final String PROPERTY_NEGATIVE_TTL = "mylutece.authentication.userIndex.negativeTtl";
+    private static final int DEFAULT_NEGATIVE_TTL = 30;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static UserAuthenticationIndexService _singleton;
+
+    /**
+     * Private constructor
+     */
+    private UserAuthenticationIndexService(  )
+    {
+        initCache(  );
+    }
+
+    /**
+     * Get the unique instance of the service
+     * @return The instance
+     */
+    public static synchronized UserAuthenticationIndexService getInstance(  )
+    {
+        if ( _singleton == null )
+        {
+            _singleton = new UserAuthenticationIndexService(  );
+        }
+
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName(  )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Gets the name of the authentication owning a login
+     * @param strLogin the login
+     * @return the authentication name, {@link #NO_AUTHENTICATION} if no authentication knows the login,
+     *         or null if the login is not indexed
+     */
+    public String getAuthenticationName( String strLogin )
+    {
+        return (String) getUnexpiredFromCache( strLogin );
+    }
+
+    /**
+     * Indexes the authentication owning a login
+     * @param strLogin the login
+     * @param strAuthenticationName the authentication name
+     */
+    public void putAuthenticationName( String strLogin, String strAuthenticationName )
+    {
+        if ( ( strLogin != null ) && ( strAuthenticationName != null ) )
+        {
+            putInCache( strLogin, strAuthenticationName );
+        }
+    }
+
+    /**
+     * Remembers that no authentication knows a login
+     * @param strLogin the login
+     */
+    public void putNoAuthentication( String strLogin )
+    {
+        int nTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_NEGATIVE_TTL, DEFAULT_NEGATIVE_TTL );
+
+        if ( ( strLogin != null ) && ( nTimeToLive > 0 ) )
+        {
+            putInCache( strLogin, NO_AUTHENTICATION, nTimeToLive * MILLISECONDS_PER_SECOND );
+        }
+    }
+
+    /**
+     * Removes a login from the index
+     * @param strLogin the login
+     */
+    public void remove( String strLogin )
+    {
+        if ( strLogin != null )
+        {
+            removeKey( strLogin );
+        }
+    }
+}
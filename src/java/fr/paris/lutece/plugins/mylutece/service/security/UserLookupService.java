@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.security;
+
+import fr.paris.lutece.portal.service.security.LuteceUser;
+import fr.paris.lutece.portal.service.security.SecurityService;
+import fr.paris.lutece.portal.service.security.UserNotSignedException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.Serializable;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+
+/**
+ * Memoizes the user lookups of a request, so that the authentication filter, the
+ * page includes and the portlets share a single lookup. <br>
+ * Failed remote user lookups can also be remembered in the session for a short
+ * time, so that anonymous visitors of private pages don't trigger the lookup of
+ * every external authentication on each hit. Such a negative result is ignored
+ * as soon as the cookies or the authorization header of the request change.
+ */
+public final class UserLookupService
+{
+    private static final String ATTRIBUTE_REGISTERED_USER = "mylutece.lookup.registeredUser";
+    private static final String ATTRIBUTE_REMOTE_USER = "mylutece.lookup.remoteUser";
+    private static final String ATTRIBUTE_REMOTE_USER_NOT_FOUND = "mylutece.lookup.remoteUserNotFound";
+    private static final String PROPERTY_NEGATIVE_CACHE_TTL = "mylutece.security.remoteUser.negativeCacheTtl";
+    private static final String HEADER_COOKIE = "Cookie";
+    private static final String HEADER_AUTHORIZATION = "Authorization";
+    private static final int DEFAULT_NEGATIVE_CACHE_TTL = 0;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static final Object NO_USER = new Object(  );
+
+    /**
+     * Private constructor
+     */
+    private UserLookupService(  )
+    {
+    }
+
+    /**
+     * Gets the user registered in the session, looking it up only once per request
+     * @param request the HTTP request
+     * @return the registered user, or null
+     */
+    public static LuteceUser getRegisteredUser( HttpServletRequest request )
+    {
+        Object user = request.getAttribute( ATTRIBUTE_REGISTERED_USER );
+
+        if ( user == null )
+        {
+            user = SecurityService.getInstance(  ).getRegisteredUser( request );
+            request.setAttribute( ATTRIBUTE_REGISTERED_USER, ( user != null ) ? user : NO_USER );
+        }
+
+        return ( user instanceof LuteceUser ) ? (LuteceUser) user : null;
+    }
+
+    /**
+     * Gets the user authenticated by an external authentication, looking it up
+     * only once per request and honoring the negative cache of the session
+     * @param request the HTTP request
+     * @return the remote user, or null
+     * @throws UserNotSignedException if the authentication service requires an authenticated user
+     */
+    public static LuteceUser getRemoteUser( HttpServletRequest request )
+        throws UserNotSignedException
+    {
+        Object user = request.getAttribute( ATTRIBUTE_REMOTE_USER );
+
+        if ( user != null )
+        {
+            return ( user instanceof LuteceUser ) ? (LuteceUser) user : null;
+        }
+
+        if ( isRemoteUserNotFound( request ) )
+        {
+            request.setAttribute( ATTRIBUTE_REMOTE_USER, NO_USER );
+
+            return null;
+        }
+
+        LuteceUser remoteUser;
+
+        try
+        {
+            remoteUser = SecurityService.getInstance(  ).getRemoteUser( request );
+        }
+        catch ( UserNotSignedException e )
+        {
+            setRemoteUserNotFound( request );
+            throw e;
+        }
+
+        if ( remoteUser == null )
+        {
+            setRemoteUserNotFound( request );
+            request.setAttribute( ATTRIBUTE_REMOTE_USER, NO_USER );
+        }
+        else
+        {
+            // The remote user is now registered in the session
+            request.setAttribute( ATTRIBUTE_REMOTE_USER, remoteUser );
+            request.setAttribute( ATTRIBUTE_REGISTERED_USER, remoteUser );
+        }
+
+        return remoteUser;
+    }
+
+    /**
+     * Forgets the lookups of the request and the negative cache of the session.
+     * Must be called when a user logs in or out.
+     * @param request the HTTP request
+     */
+    public static void clear( HttpServletRequest request )
+    {
+        request.removeAttribute( ATTRIBUTE_REGISTERED_USER );
+        request.removeAttribute( ATTRIBUTE_REMOTE_USER );
+
+        HttpSession session = request.getSession( false );
+
+        if ( session != null )
+        {
+            session.removeAttribute( ATTRIBUTE_REMOTE_USER_NOT_FOUND );
+        }
+    }
+
+    /**
+     * Checks the negative cache of the session
+     * @param request the HTTP request
+     * @return true if a failed lookup is still valid for this request
+     */
+    private static boolean isRemoteUserNotFound( HttpServletRequest request )
+    {
+        HttpSession session = request.getSession( false );
+
+        if ( session == null )
+        {
+            return false;
+        }
+
+        RemoteUserNotFound notFound = (RemoteUserNotFound) session.getAttribute( ATTRIBUTE_REMOTE_USER_NOT_FOUND );
+
+        return ( notFound != null ) && ( notFound._lExpiration > System.currentTimeMillis(  ) ) &&
+        ( notFound._nFingerprint == getCredentialsFingerprint( request ) );
+    }
+
+    /**
+     * Stores a failed lookup in the negative cache of the session, if enabled and
+     * if the session exists
+     * @param request the HTTP request
+     */
+    private static void setRemoteUserNotFound( HttpServletRequest request )
+    {
+        int nTtl = AppPropertiesService.getPropertyInt( PROPERTY_NEGATIVE_CACHE_TTL, DEFAULT_NEGATIVE_CACHE_TTL );
+        HttpSession session = request.getSession( false );
+
+        if ( ( nTtl > 0 ) && ( session != null ) )
+        {
+            session.setAttribute( ATTRIBUTE_REMOTE_USER_NOT_FOUND,
+                new RemoteUserNotFound( System.currentTimeMillis(  ) + ( nTtl * MILLISECONDS_PER_SECOND ),
+                    getCredentialsFingerprint( request ) ) );
+        }
+    }
+
+    /**
+     * Computes a fingerprint of the parts of the request that usually carry credentials
+     * @param request the HTTP request
+     * @return the fingerprint
+     */
+    private static int getCredentialsFingerprint( HttpServletRequest request )
+    {
+        String strCookie = request.getHeader( HEADER_COOKIE );
+        String strAuthorization = request.getHeader( HEADER_AUTHORIZATION );
+
+        return ( 31 * ( ( strCookie != null ) ? strCookie.hashCode(  ) : 0 ) ) +
+        ( ( strAuthorization != null ) ? strAuthorization.hashCode(  ) : 0 );
+    }
+
+    /**
+     * Failed remote user lookup
+     */
+    private static final class RemoteUserNotFound implements Serializable
+    {
+        private static final long serialVersionUID = -2739186510927718045L;
+        private final long _lExpiration;
+        private final int _nFingerprint;
+
+        /**
+         * Constructor
+         * @param lExpiration the expiration time
+         * @param nFingerprint the fingerprint of the request credentials
+         */
+        RemoteUserNotFound( long lExpiration, int nFingerprint )
+        {
+            _lExpiration = lExpiration;
+            _nFingerprint = nFingerprint;
+        }
+    }
+}
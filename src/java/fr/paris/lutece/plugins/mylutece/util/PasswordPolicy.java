@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.util;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+
+/**
+ * Password policy compiled from the security parameters of a plugin : the minimum
+ * length, the character classes a password must contain and the banned domain names
+ * of the email addresses. A password is checked in a single pass over its characters,
+ * and all the violated rules are reported at once.
+ * As in {@link fr.paris.lutece.util.password.PasswordUtil}, the classes are ASCII ones :
+ * accented letters and non ASCII digits belong to none of them.
+ */
+public final class PasswordPolicy
+{
+    /**
+     * Rules of the policy
+     */
+    public enum Rule
+    {
+        MINIMUM_LENGTH,
+        UPPER_LOWER_CASE,
+        NUMERO,
+        SPECIAL_CHARACTERS;
+    }
+
+    // Character classes
+    private static final int CLASS_LOWER_CASE = 1;
+    private static final int CLASS_UPPER_CASE = 1 << 1;
+    private static final int CLASS_NUMERO = 1 << 2;
+    private static final int CLASS_SPECIAL_CHARACTER = 1 << 3;
+    private static final int ASCII_SIZE = 128;
+    private static final char EMAIL_AT = '@';
+    private static final int[] ASCII_CLASSES = new int[ASCII_SIZE];
+    private static final int FORMAT_RULES = ( 1 << Rule.UPPER_LOWER_CASE.ordinal(  ) ) |
+        ( 1 << Rule.NUMERO.ordinal(  ) ) | ( 1 << Rule.SPECIAL_CHARACTERS.ordinal(  ) );
+
+    static
+    {
+        // Printable characters, space excluded
+        for ( char c = '!'; c <= '~'; c++ )
+        {
+            ASCII_CLASSES[c] = CLASS_SPECIAL_CHARACTER;
+        }
+
+        for ( char c = 'a'; c <= 'z'; c++ )
+        {
+            ASCII_CLASSES[c] = CLASS_LOWER_CASE;
+        }
+
+        for ( char c = 'A'; c <= 'Z'; c++ )
+        {
+            ASCII_CLASSES[c] = CLASS_UPPER_CASE;
+        }
+
+        for ( char c = '0'; c <= '9'; c++ )
+        {
+            ASCII_CLASSES[c] = CLASS_NUMERO;
+        }
+    }
+
+    private final int _nMinimumLength;
+    private final int _nRequiredClasses;
+    private final Set<String> _setBannedDomainNames;
+
+    /**
+     * Constructor of a policy without banned domain names
+     * @param nMinimumLength The minimum length of the passwords, 0 if none
+     * @param bUpperLowerCase True if the passwords must contain upper and lower case letters
+     * @param bNumero True if the passwords must contain numbers
+     * @param bSpecialCharacters True if the passwords must contain special characters
+     */
+    public PasswordPolicy( int nMinimumLength, boolean bUpperLowerCase, boolean bNumero, boolean bSpecialCharacters )
+    {
+        this( nMinimumLength, bUpperLowerCase, bNumero, bSpecialCharacters, null );
+    }
+
+    /**
+     * Constructor
+     * @param nMinimumLength The minimum length of the passwords, 0 if none
+     * @param bUpperLowerCase True if the passwords must contain upper and lower case letters
+     * @param bNumero True if the passwords must contain numbers
+     * @param bSpecialCharacters True if the passwords must contain special characters
+     * @param bannedDomainNames The banned domain names of the email addresses, or null
+     */
+    public PasswordPolicy( int nMinimumLength, boolean bUpperLowerCase, boolean bNumero, boolean bSpecialCharacters,
+        String[] bannedDomainNames )
+    {
+        _nMinimumLength = nMinimumLength;
+        _nRequiredClasses = ( bUpperLowerCase ? ( CLASS_LOWER_CASE | CLASS_UPPER_CASE ) : 0 ) |
+            ( bNumero ? CLASS_NUMERO : 0 ) | ( bSpecialCharacters ? CLASS_SPECIAL_CHARACTER : 0 );
+
+        Set<String> setBannedDomainNames = new HashSet<String>(  );
+
+        if ( bannedDomainNames != null )
+        {
+            for ( String strDomainName : bannedDomainNames )
+            {
+                if ( StringUtils.isNotBlank( strDomainName ) )
+                {
+                    setBannedDomainNames.add( strDomainName.trim(  ).toLowerCase( Locale.ENGLISH ) );
+                }
+            }
+        }
+
+        _setBannedDomainNames = Collections.unmodifiableSet( setBannedDomainNames );
+    }
+
+    /**
+     * Get the minimum length of the passwords
+     * @return The minimum length, 0 if none
+     */
+    public int getMinimumLength(  )
+    {
+        return _nMinimumLength;
+    }
+
+    /**
+     * Checks whether the passwords must contain upper and lower case letters
+     * @return true if they must
+     */
+    public boolean isUpperLowerCaseRequired(  )
+    {
+        return ( _nRequiredClasses & CLASS_LOWER_CASE ) != 0;
+    }
+
+    /**
+     * Checks whether the passwords must contain numbers
+     * @return true if they must
+     */
+    public boolean isNumeroRequired(  )
+    {
+        return ( _nRequiredClasses & CLASS_NUMERO ) != 0;
+    }
+
+    /**
+     * Checks whether the passwords must contain special characters
+     * @return true if they must
+     */
+    public boolean isSpecialCharactersRequired(  )
+    {
+        return ( _nRequiredClasses & CLASS_SPECIAL_CHARACTER ) != 0;
+    }
+
+    /**
+     * Get the banned domain names of the email addresses
+     * @return The banned domain names, in lower case
+     */
+    public Set<String> getBannedDomainNames(  )
+    {
+        return _setBannedDomainNames;
+    }
+
+    /**
+     * Checks a password against the policy
+     * @param strPassword The password
+     * @return The result, listing the violated rules
+     */
+    public Result check( String strPassword )
+    {
+        int nLength = ( strPassword != null ) ? strPassword.length(  ) : 0;
+        int nViolations = 0;
+
+        if ( ( _nMinimumLength > 0 ) && ( nLength < _nMinimumLength ) )
+        {
+            nViolations |= ( 1 << Rule.MINIMUM_LENGTH.ordinal(  ) );
+        }
+
+        int nFoundClasses = 0;
+
+        for ( int i = 0; ( i < nLength ) && ( ( nFoundClasses & _nRequiredClasses ) != _nRequiredClasses ); i++ )
+        {
+            nFoundClasses |= getCharacterClass( strPassword.charAt( i ) );
+        }
+
+        int nMissingClasses = _nRequiredClasses & ~nFoundClasses;
+
+        if ( ( nMissingClasses & ( CLASS_LOWER_CASE | CLASS_UPPER_CASE ) ) != 0 )
+        {
+            nViolations |= ( 1 << Rule.UPPER_LOWER_CASE.ordinal(  ) );
+        }
+
+        if ( ( nMissingClasses & CLASS_NUMERO ) != 0 )
+        {
+            nViolations |= ( 1 << Rule.NUMERO.ordinal(  ) );
+        }
+
+        if ( ( nMissingClasses & CLASS_SPECIAL_CHARACTER ) != 0 )
+        {
+            nViolations |= ( 1 << Rule.SPECIAL_CHARACTERS.ordinal(  ) );
+        }
+
+        return ( nViolations == 0 ) ? Result.VALID : new Result( nViolations );
+    }
+
+    /**
+     * Checks whether the domain name of an email address is banned
+     * @param strEmail The email address
+     * @return true if the domain name is banned
+     */
+    public boolean isBannedEmail( String strEmail )
+    {
+        if ( ( strEmail == null ) || _setBannedDomainNames.isEmpty(  ) )
+        {
+            return false;
+        }
+
+        String strDomainName = strEmail.substring( strEmail.lastIndexOf( EMAIL_AT ) + 1 ).trim(  );
+
+        return _setBannedDomainNames.contains( strDomainName.toLowerCase( Locale.ENGLISH ) );
+    }
+
+    /**
+     * Get the class of a character
+     * @param c The character
+     * @return The class of the character, 0 if it is not a printable ASCII character
+     */
+    private static int getCharacterClass( char c )
+    {
+        return ( c < ASCII_SIZE ) ? ASCII_CLASSES[c] : 0;
+    }
+
+    /**
+     * Result of the check of a password
+     */
+    public static final class Result
+    {
+        private static final Result VALID = new Result( 0 );
+        private final int _nViolations;
+
+        /**
+         * Constructor
+         * @param nViolations The mask of the violated rules
+         */
+        private Result( int nViolations )
+        {
+            _nViolations = nViolations;
+        }
+
+        /**
+         * Checks whether the password respects all the rules
+         * @return true if no rule is violated
+         */
+        public boolean isValid(  )
+        {
+            return _nViolations == 0;
+        }
+
+        /**
+         * Checks whether a rule is violated
+         * @param rule The rule
+         * @return true if the rule is violated
+         */
+        public boolean isViolated( Rule rule )
+        {
+            return ( _nViolations & ( 1 << rule.ordinal(  ) ) ) != 0;
+        }
+
+        /**
+         * Checks whether a rule of the format of the password is violated
+         * @return true if the password misses a required character class
+         */
+        public boolean isFormatViolated(  )
+        {
+            return ( _nViolations & FORMAT_RULES ) != 0;
+        }
+
+        /**
+         * Get the violated rules
+         * @return The violated rules
+         */
+        public Set<Rule> getViolatedRules(  )
+        {
+            Set<Rule> setRules = EnumSet.noneOf( Rule.class );
+
+            for ( Rule rule : Rule.values(  ) )
+            {
+                if ( isViolated( rule ) )
+                {
+                    setRules.add( rule );
+                }
+            }
+
+            return setRules;
+        }
+    }
+}
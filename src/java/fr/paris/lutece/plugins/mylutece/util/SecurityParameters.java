@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.util;
+
+import fr.paris.lutece.plugins.mylutece.service.IUserParameterService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.ReferenceItem;
+import fr.paris.lutece.util.ReferenceList;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Immutable snapshot of the security parameters of a plugin, loaded with a single
+ * {@link IUserParameterService#findAll(Plugin)}, and of the password policy compiled
+ * from them. Snapshots are cached per plugin and
+ * dropped by {@link #invalidate(Plugin)} when a parameter is updated. Each invalidation
+ * bumps the generation of the plugin, so that a snapshot loaded before an update is
+ * never kept in cache after it. As other modules may update the parameters through the
+ * parameter service without invalidating them, a snapshot is also reloaded after
+ * <code>mylutece.security.parameters.ttl</code> seconds.
+ */
+public final class SecurityParameters
+{
+    private static final String KEY_ENABLE_PASSWORD_ENCRYPTION = "enable_password_encryption";
+    private static final String KEY_ENCRYPTION_ALGORITHM = "encryption_algorithm";
+    private static final String KEY_PASSWORD_MINIMUM_LENGTH = "password_minimum_length";
+    private static final String KEY_PASSWORD_FORMAT_UPPER_LOWER_CASE = "password_format_upper_lower_case";
+    private static final String KEY_PASSWORD_FORMAT_NUMERO = "password_format_numero";
+    private static final String KEY_PASSWORD_FORMAT_SPECIAL_CHARACTERS = "password_format_special_characters";
+    private static final String PROPERTY_TTL = "mylutece.security.parameters.ttl";
+    private static final int DEFAULT_TTL = 60;
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+    private static final ConcurrentMap<String, SecurityParameters> _mapSnapshots = new ConcurrentHashMap<String, SecurityParameters>(  );
+    private static final ConcurrentMap<String, AtomicLong> _mapGenerations = new ConcurrentHashMap<String, AtomicLong>(  );
+    private final Map<String, String> _mapValues;
+    private final Set<String> _setCheckedKeys;
+    private final boolean _bPasswordEncrypted;
+    private final String _strEncryptionAlgorithm;
+    private final PasswordPolicy _passwordPolicy;
+    private final long _lExpiration;
+
+    /**
+     * Constructor
+     * @param parameterService the parameter service
+     * @param plugin the plugin
+     */
+    private SecurityParameters( IUserParameterService parameterService, Plugin plugin )
+    {
+        Map<String, String> mapValues = new HashMap<String, String>(  );
+        Set<String> setCheckedKeys = new HashSet<String>(  );
+        ReferenceList listParameters = parameterService.findAll( plugin );
+
+        if ( listParameters != null )
+        {
+            for ( ReferenceItem parameter : listParameters )
+            {
+                mapValues.put( parameter.getCode(  ), parameter.getName(  ) );
+
+                // findAll doesn't always set the checked flag that findByKey sets
+                if ( parameter.isChecked(  ) || Boolean.parseBoolean( parameter.getName(  ) ) )
+                {
+                    setCheckedKeys.add( parameter.getCode(  ) );
+                }
+            }
+        }
+
+        _mapValues = mapValues;
+        _setCheckedKeys = setCheckedKeys;
+        // Read from the same query, as isPasswordEncrypted and getEncryptionAlgorithm would each query the parameters
+        _bPasswordEncrypted = setCheckedKeys.contains( KEY_ENABLE_PASSWORD_ENCRYPTION );
+        _strEncryptionAlgorithm = StringUtils.defaultString( mapValues.get( KEY_ENCRYPTION_ALGORITHM ) );
+        // The banned domain names are a large parameter, kept in the datastore
+        _passwordPolicy = new PasswordPolicy( getInteger( KEY_PASSWORD_MINIMUM_LENGTH ),
+                getBoolean( KEY_PASSWORD_FORMAT_UPPER_LOWER_CASE ), getBoolean( KEY_PASSWORD_FORMAT_NUMERO ),
+                getBoolean( KEY_PASSWORD_FORMAT_SPECIAL_CHARACTERS ),
+                ( plugin != null ) ? SecurityUtils.getBannedDomainNames( parameterService, plugin ) : null );
+        _lExpiration = System.currentTimeMillis(  ) +
+            ( Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_TTL, DEFAULT_TTL ) ) * MILLISECONDS_PER_SECOND );
+    }
+
+    /**
+     * Gets the security parameters of a plugin, from the cache or from the parameter service
+     * @param parameterService the parameter service
+     * @param plugin the plugin
+     * @return the security parameters
+     */
+    public static SecurityParameters getSecurityParameters( IUserParameterService parameterService, Plugin plugin )
+    {
+        String strKey = getKey( plugin );
+        SecurityParameters parameters = _mapSnapshots.get( strKey );
+
+        if ( ( parameters == null ) || ( System.currentTimeMillis(  ) > parameters._lExpiration ) )
+        {
+            AtomicLong generation = getGeneration( strKey );
+            long lGeneration = generation.get(  );
+            parameters = new SecurityParameters( parameterService, plugin );
+            _mapSnapshots.put( strKey, parameters );
+
+            // An invalidation bumps the generation before dropping the snapshot : if the
+            // generation changed while loading, the snapshot may be stale and is dropped here
+            if ( generation.get(  ) != lGeneration )
+            {
+                _mapSnapshots.remove( strKey, parameters );
+            }
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Drops the cached security parameters of a plugin
+     * @param plugin the plugin
+     */
+    public static void invalidate( Plugin plugin )
+    {
+        String strKey = getKey( plugin );
+        getGeneration( strKey ).incrementAndGet(  );
+        _mapSnapshots.remove( strKey );
+    }
+
+    /**
+     * Drops the cached security parameters of all the plugins
+     */
+    public static void invalidateAll(  )
+    {
+        for ( AtomicLong generation : _mapGenerations.values(  ) )
+        {
+            generation.incrementAndGet(  );
+        }
+
+        _mapSnapshots.clear(  );
+    }
+
+    /**
+     * Gets the generation of the security parameters of a plugin
+     * @param strKey the key of the plugin
+     * @return the generation
+     */
+    private static AtomicLong getGeneration( String strKey )
+    {
+        AtomicLong generation = _mapGenerations.get( strKey );
+
+        if ( generation == null )
+        {
+            AtomicLong newGeneration = new AtomicLong(  );
+            generation = _mapGenerations.putIfAbsent( strKey, newGeneration );
+
+            if ( generation == null )
+            {
+                generation = newGeneration;
+            }
+        }
+
+        return generation;
+    }
+
+    /**
+     * Gets the value of a parameter
+     * @param strKey the parameter key
+     * @return the value, or null if the parameter doesn't exist
+     */
+    public String getValue( String strKey )
+    {
+        return _mapValues.get( strKey );
+    }
+
+    /**
+     * Gets the integer value of a parameter
+     * @param strKey the parameter key
+     * @return the integer value, or 0 if no value or an incorrect value is specified
+     */
+    public int getInteger( String strKey )
+    {
+        String strValue = _mapValues.get( strKey );
+
+        if ( StringUtils.isEmpty( strValue ) )
+        {
+            return 0;
+        }
+
+        try
+        {
+            return Integer.parseInt( strValue );
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the boolean value of a parameter
+     * @param strKey the parameter key
+     * @return true if the parameter is checked
+     */
+    public boolean getBoolean( String strKey )
+    {
+        return _setCheckedKeys.contains( strKey );
+    }
+
+    /**
+     * Checks if the passwords are encrypted
+     * @return true if they are encrypted
+     */
+    public boolean isPasswordEncrypted(  )
+    {
+        return _bPasswordEncrypted;
+    }
+
+    /**
+     * Gets the encryption algorithm of the passwords
+     * @return the encryption algorithm
+     */
+    public String getEncryptionAlgorithm(  )
+    {
+        return _strEncryptionAlgorithm;
+    }
+
+    /**
+     * Gets the password policy compiled from these parameters
+     * @return the password policy
+     */
+    public PasswordPolicy getPasswordPolicy(  )
+    {
+        return _passwordPolicy;
+    }
+
+    /**
+     * Gets the cache key of a plugin
+     * @param plugin the plugin
+     * @return the key
+     */
+    private static String getKey( Plugin plugin )
+    {
+        return ( plugin != null ) ? plugin.getName(  ) : StringUtils.EMPTY;
+    }
+}
@@ -34,11 +34,19 @@
 package fr.paris.lutece.plugins.mylutece.util;
 
 import fr.paris.lutece.plugins.mylutece.service.IUserParameterService;
+import fr.paris.lutece.plugins.mylutece.service.PasswordHistoryService;
+import fr.paris.lutece.plugins.mylutece.service.PasswordHistoryStatus;
+import fr.paris.lutece.plugins.mylutece.service.invalidation.InvalidationService;
+import fr.paris.lutece.plugins.mylutece.service.password.PasswordHashExecutorService;
+import fr.paris.lutece.plugins.mylutece.service.password.PasswordHashService;
+import fr.paris.lutece.plugins.mylutece.service.password.PasswordHashingBusyException;
+import fr.paris.lutece.plugins.mylutece.service.password.PasswordVerification;
 import fr.paris.lutece.portal.service.datastore.DatastoreService;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.message.AdminMessage;
 import fr.paris.lutece.portal.service.message.AdminMessageService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.service.util.CryptoService;
@@ -51,12 +59,14 @@ import org.apache.commons.lang.StringUtils;
 
 import java.sql.Timestamp;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -110,6 +120,7 @@ public class SecurityUtils
     private static final String ERROR_PASSWORD_WRONG_FORMAT = "password_format";
     private static final String ERROR_PASSWORD_ALREADY_USED = "password_already_used";
     private static final String ERROR_MAX_PASSWORD_CHANGE = "max_password_change";
+    private static final String ERROR_PASSWORD_HASHING_BUSY = "password_hashing_busy";
 
     // PROPERTIES
     private static final String PROPERTY_DEFAULT_PASSWORD_MINIMAL_LENGTH = "security.defaultValues.passwordMinimalLength";
@@ -137,7 +148,7 @@ public class SecurityUtils
                 MARK_USE_ADVANCED_SECURITY_PARAMETERS );
         model.put( MARK_ENABLE_PASSWORD_ENCRYPTION,
             getBooleanSecurityParameter( parameterService, plugin, MARK_ENABLE_PASSWORD_ENCRYPTION ) );
-        model.put( MARK_ENCRYPTION_ALGORITHM, parameterService.getEncryptionAlgorithm( plugin ) );
+        model.put( MARK_ENCRYPTION_ALGORITHM, getSecurityParameters( parameterService, plugin ).getEncryptionAlgorithm(  ) );
         model.put( MARK_FORCE_CHANGE_PASSWORD_REINIT,
             isChangePasswordForceAfterReinitActivated( parameterService, plugin ) );
         model.put( MARK_PASSWORD_MINIMUM_LENGTH, getMinimumPasswordLength( parameterService, plugin ) );
@@ -271,10 +282,7 @@ public class SecurityUtils
     private static boolean isChangePasswordForceAfterReinitActivated( IUserParameterService parameterService,
         Plugin plugin )
     {
-        Boolean bIsChecked = Boolean.valueOf( parameterService.findByKey( MARK_FORCE_CHANGE_PASSWORD_REINIT, plugin )
-                                                              .isChecked(  ) );
-
-        return bIsChecked.booleanValue(  );
+        return getBooleanSecurityParameter( parameterService, plugin, MARK_FORCE_CHANGE_PASSWORD_REINIT );
     }
 
     /**
@@ -288,9 +296,8 @@ public class SecurityUtils
     protected static boolean checkUserPasswordMinimumLength( String strPassword,
         IUserParameterService parameterService, Plugin plugin )
     {
-        int nMinimumLength = getIntegerSecurityParameter( parameterService, plugin, MARK_PASSWORD_MINIMUM_LENGTH );
-
-        return !( ( nMinimumLength > 0 ) && ( strPassword.length(  ) < nMinimumLength ) );
+        return !getPasswordPolicy( parameterService, plugin ).check( strPassword )
+                    .isViolated( PasswordPolicy.Rule.MINIMUM_LENGTH );
     }
 
     /**
@@ -304,7 +311,7 @@ public class SecurityUtils
     protected static String getMessagePasswordMinimumLength( HttpServletRequest request,
         IUserParameterService parameterService, Plugin plugin )
     {
-        Object[] param = { parameterService.findByKey( MARK_PASSWORD_MINIMUM_LENGTH, plugin ).getName(  ) };
+        Object[] param = { getSecurityParameter( parameterService, plugin, MARK_PASSWORD_MINIMUM_LENGTH ) };
 
         return AdminMessageService.getMessageUrl( request, MESSAGE_MINIMUM_PASSWORD_LENGTH, param,
             AdminMessage.TYPE_STOP );
@@ -415,23 +422,7 @@ public class SecurityUtils
     public static int getIntegerSecurityParameter( IUserParameterService parameterService, Plugin plugin,
         String strParameterkey )
     {
-        ReferenceItem refItem = parameterService.findByKey( strParameterkey, plugin );
-
-        if ( ( refItem == null ) || StringUtils.isEmpty( refItem.getName(  ) ) )
-        {
-            return 0;
-        }
-
-        try
-        {
-            int nValue = Integer.parseInt( refItem.getName(  ) );
-
-            return nValue;
-        }
-        catch ( NumberFormatException e )
-        {
-            return 0;
-        }
+        return getSecurityParameters( parameterService, plugin ).getInteger( strParameterkey );
     }
 
     /**
@@ -444,9 +435,7 @@ public class SecurityUtils
     public static boolean getBooleanSecurityParameter( IUserParameterService parameterService, Plugin plugin,
         String strParameterkey )
     {
-        ReferenceItem refItem = parameterService.findByKey( strParameterkey, plugin );
-
-        return ( refItem == null ) ? false : refItem.isChecked(  );
+        return getSecurityParameters( parameterService, plugin ).getBoolean( strParameterkey );
     }
 
     /**
@@ -459,9 +448,20 @@ public class SecurityUtils
     public static String getSecurityParameter( IUserParameterService parameterService, Plugin plugin,
         String strParameterkey )
     {
-        ReferenceItem refItem = parameterService.findByKey( strParameterkey, plugin );
+        return getSecurityParameters( parameterService, plugin ).getValue( strParameterkey );
+    }
 
-        return ( refItem == null ) ? null : refItem.getName(  );
+    /**
+     * Get the snapshot of the security parameters of a plugin. The snapshot is
+     * loaded once and kept until a parameter is updated, so a request checking
+     * several parameters reads the parameter table only once.
+     * @param parameterService Parameter service to use
+     * @param plugin The plugin
+     * @return The security parameters
+     */
+    public static SecurityParameters getSecurityParameters( IUserParameterService parameterService, Plugin plugin )
+    {
+        return SecurityParameters.getSecurityParameters( parameterService, plugin );
     }
 
     /**
@@ -572,6 +572,7 @@ public class SecurityUtils
         strValue = ( strValue == null ) ? StringUtils.EMPTY : strValue;
         userParam.setName( strValue );
         parameterService.update( userParam, plugin );
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_SECURITY_PARAMETERS );
     }
 
     /**
@@ -585,6 +586,7 @@ public class SecurityUtils
         String strValue )
     {
         DatastoreService.setDataValue( plugin.getName(  ) + CONSTANT_UNDERSCORE + strKey, strValue );
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_SECURITY_PARAMETERS );
     }
 
     /**
@@ -692,19 +694,24 @@ public class SecurityUtils
      * @return Returns null if the password is correct, or a code depending on
      *         the error found. Errors can be 'password_minimum_length' if the
      *         password is too short, or 'password_format' if the format of the
-     *         password is not correct.
+     *         password is not correct. The error is 'password_hashing_busy' if
+     *         the password history can't be checked because the hashing pool
+     *         is saturated.
      */
     public static String checkPasswordForFrontOffice( IUserParameterService parameterService, Plugin plugin,
         String strPassword, int nUserId )
     {
+        SecurityParameters parameters = getSecurityParameters( parameterService, plugin );
+        PasswordPolicy.Result result = getPasswordPolicy( parameterService, plugin ).check( strPassword );
+
         // Check minimum length password
-        if ( !( SecurityUtils.checkUserPasswordMinimumLength( strPassword, parameterService, plugin ) ) )
+        if ( result.isViolated( PasswordPolicy.Rule.MINIMUM_LENGTH ) )
         {
             return ERROR_PASSWORD_MINIMUM_LENGTH;
         }
 
         // Check password format
-        if ( !( SecurityUtils.checkPasswordFormat( strPassword, parameterService, plugin ) ) )
+        if ( result.isFormatViolated(  ) )
         {
             return ERROR_PASSWORD_WRONG_FORMAT;
         }
@@ -712,51 +719,215 @@ public class SecurityUtils
         // Check password history
         if ( nUserId > 0 )
         {
-            int nPasswordHistorySize = getIntegerSecurityParameter( parameterService, plugin, MARK_PASSWORD_HISTORY_SIZE );
+            PasswordHistoryStatus status;
+
+            try
+            {
+                status = getPasswordHistoryStatus( parameterService, plugin, parameters, strPassword, nUserId );
+            }
+            catch ( PasswordHashingBusyException e )
+            {
+                return ERROR_PASSWORD_HASHING_BUSY;
+            }
+
+            if ( status.isPasswordInHistory(  ) )
+            {
+                return ERROR_PASSWORD_ALREADY_USED;
+            }
 
-            if ( nPasswordHistorySize > 0 )
+            if ( isMaximumPasswordChangeReached( parameters, status ) )
             {
-                String strEncryptedPassword = buildPassword( parameterService, plugin, strPassword );
-                List<String> passwordHistory = parameterService.selectUserPasswordHistory( nUserId, plugin );
+                return ERROR_MAX_PASSWORD_CHANGE;
+            }
+        }
+
+        return null;
+    }
 
-                if ( nPasswordHistorySize < passwordHistory.size(  ) )
+    /**
+     * Test a password validity, reporting all the errors at once
+     * @param parameterService Paramter service to use
+     * @param plugin The plugin
+     * @param strPassword The password to test validity
+     * @param nUserId The id of the user
+     * @return The codes of all the errors found, the same as the ones of
+     *         {@link #checkPasswordForFrontOffice(IUserParameterService, Plugin, String, int)}.
+     *         The list is empty if the password is correct.
+     */
+    public static List<String> getPasswordErrorsForFrontOffice( IUserParameterService parameterService,
+        Plugin plugin, String strPassword, int nUserId )
+    {
+        List<String> listErrors = new ArrayList<String>(  );
+        SecurityParameters parameters = getSecurityParameters( parameterService, plugin );
+        PasswordPolicy.Result result = getPasswordPolicy( parameterService, plugin ).check( strPassword );
+
+        if ( result.isViolated( PasswordPolicy.Rule.MINIMUM_LENGTH ) )
+        {
+            listErrors.add( ERROR_PASSWORD_MINIMUM_LENGTH );
+        }
+
+        if ( result.isFormatViolated(  ) )
+        {
+            listErrors.add( ERROR_PASSWORD_WRONG_FORMAT );
+        }
+
+        if ( nUserId > 0 )
+        {
+            try
+            {
+                PasswordHistoryStatus status = getPasswordHistoryStatus( parameterService, plugin, parameters,
+                        strPassword, nUserId );
+
+                if ( status.isPasswordInHistory(  ) )
                 {
-                    passwordHistory = passwordHistory.subList( 0, nPasswordHistorySize );
+                    listErrors.add( ERROR_PASSWORD_ALREADY_USED );
                 }
 
-                if ( passwordHistory.contains( strEncryptedPassword ) )
+                if ( isMaximumPasswordChangeReached( parameters, status ) )
                 {
-                    return ERROR_PASSWORD_ALREADY_USED;
+                    listErrors.add( ERROR_MAX_PASSWORD_CHANGE );
                 }
             }
+            catch ( PasswordHashingBusyException e )
+            {
+                listErrors.add( ERROR_PASSWORD_HASHING_BUSY );
+            }
+        }
+
+        return listErrors;
+    }
 
-            int nTSWSizePasswordChange = getIntegerSecurityParameter( parameterService, plugin,
-                    MARK_TSW_SIZE_PASSWORD_CHANGE );
-            int nMaximumNumberPasswordChange = getIntegerSecurityParameter( parameterService, plugin,
-                    MARK_MAXIMUM_NUMBER_PASSWORD_CHANGE );
+    /**
+     * Gets the status of the password history of a user : whether a password is
+     * among his most recent ones, and the number of password changes in the
+     * time sliding window. Both are read with bounded queries when the parameter
+     * service supports it.
+     * @param parameterService Paramter service to use
+     * @param plugin The plugin
+     * @param parameters The security parameters
+     * @param strPassword The password
+     * @param nUserId The id of the user
+     * @return The status of the password history
+     * @throws PasswordHashingBusyException If the hashing pool is saturated
+     */
+    private static PasswordHistoryStatus getPasswordHistoryStatus( IUserParameterService parameterService,
+        Plugin plugin, SecurityParameters parameters, String strPassword, int nUserId )
+        throws PasswordHashingBusyException
+    {
+        int nPasswordHistorySize = Math.max( parameters.getInteger( MARK_PASSWORD_HISTORY_SIZE ), 0 );
+        int nTSWSizePasswordChange = parameters.getInteger( MARK_TSW_SIZE_PASSWORD_CHANGE );
+        Timestamp minDate = null;
 
-            if ( nMaximumNumberPasswordChange > 0 )
-            {
-                Timestamp minDate = null;
+        if ( parameters.getInteger( MARK_MAXIMUM_NUMBER_PASSWORD_CHANGE ) > 0 )
+        {
+            minDate = ( nTSWSizePasswordChange > 0 )
+                ? new Timestamp( new java.util.Date(  ).getTime(  ) -
+                    DateUtil.convertDaysInMiliseconds( nTSWSizePasswordChange ) ) : new Timestamp( 0 );
+        }
+
+        if ( ( nPasswordHistorySize == 0 ) && ( minDate == null ) )
+        {
+            return new PasswordHistoryStatus( false, 0 );
+        }
+
+        if ( ( nPasswordHistorySize > 0 ) && parameters.isPasswordEncrypted(  ) )
+        {
+            // Salted hashes can't be compared by the database : verify each entry of the history.
+            // The history may hold some even once the adaptive hashing has been disabled
+            List<String> listHistory = PasswordHistoryService.selectUserPasswordHistory( parameterService, nUserId,
+                    nPasswordHistorySize, plugin );
+            int nChangeCount = ( minDate != null )
+                ? PasswordHistoryService.getPasswordHistoryStatus( parameterService, nUserId, null, 0, minDate, plugin )
+                                        .getChangeCount(  ) : 0;
+
+            return new PasswordHistoryStatus( isPasswordInHistory( parameters, strPassword, listHistory ),
+                nChangeCount );
+        }
+
+        String strEncryptedPassword = ( nPasswordHistorySize > 0 )
+            ? buildPassword( parameters, strPassword, I18nService.getDefaultLocale(  ) ) : null;
+
+        return PasswordHistoryService.getPasswordHistoryStatus( parameterService, nUserId, strEncryptedPassword,
+            nPasswordHistorySize, minDate, plugin );
+    }
+
+    /**
+     * Checks whether a password is in a password history holding adaptive
+     * hashes and legacy digests. Each adaptive hash is verified by the bounded
+     * pool of the {@link PasswordHashExecutorService}, as a login is.
+     * @param parameters The security parameters
+     * @param strPassword The password
+     * @param listHistory The password history
+     * @return true if the password is in the history
+     * @throws PasswordHashingBusyException If the hashing pool is saturated
+     */
+    private static boolean isPasswordInHistory( SecurityParameters parameters, final String strPassword,
+        List<String> listHistory ) throws PasswordHashingBusyException
+    {
+        PasswordHashService hashService = PasswordHashService.getInstance(  );
+        PasswordHashExecutorService executorService = PasswordHashExecutorService.getInstance(  );
+        String strLegacyPassword = null;
 
-                if ( nTSWSizePasswordChange > 0 )
+        for ( final String strStoredPassword : listHistory )
+        {
+            if ( hashService.isAdaptiveHash( strStoredPassword ) )
+            {
+                PasswordVerification verification = executorService.execute( new Callable<PasswordVerification>(  )
+                        {
+                            @Override
+                            public PasswordVerification call(  )
+                            {
+                                return PasswordHashService.getInstance(  )
+                                                          .verify( strPassword, strStoredPassword, null, false );
+                            }
+                        }, I18nService.getDefaultLocale(  ) );
+
+                if ( verification.isValid(  ) )
                 {
-                    minDate = new Timestamp( new java.util.Date(  ).getTime(  ) -
-                            DateUtil.convertDaysInMiliseconds( nTSWSizePasswordChange ) );
+                    return true;
                 }
-                else
+            }
+            else
+            {
+                if ( strLegacyPassword == null )
                 {
-                    minDate = new Timestamp( 0 );
+                    strLegacyPassword = CryptoService.encrypt( strPassword, parameters.getEncryptionAlgorithm(  ) );
                 }
 
-                if ( parameterService.countUserPasswordHistoryFromDate( minDate, nUserId, plugin ) >= nMaximumNumberPasswordChange )
+                if ( strLegacyPassword.equals( strStoredPassword ) )
                 {
-                    return ERROR_MAX_PASSWORD_CHANGE;
+                    return true;
                 }
             }
         }
 
-        return null;
+        return false;
+    }
+
+    /**
+     * Checks whether a user changed his password too many times in the time
+     * sliding window
+     * @param parameters The security parameters
+     * @param status The status of the password history of the user
+     * @return true if the user can't change his password anymore
+     */
+    private static boolean isMaximumPasswordChangeReached( SecurityParameters parameters, PasswordHistoryStatus status )
+    {
+        int nMaximumNumberPasswordChange = parameters.getInteger( MARK_MAXIMUM_NUMBER_PASSWORD_CHANGE );
+
+        return ( nMaximumNumberPasswordChange > 0 ) && ( status.getChangeCount(  ) >= nMaximumNumberPasswordChange );
+    }
+
+    /**
+     * Get the password policy of a plugin, compiled once from its security
+     * parameters
+     * @param parameterService Parameter service to use
+     * @param plugin The plugin
+     * @return The password policy
+     */
+    public static PasswordPolicy getPasswordPolicy( IUserParameterService parameterService, Plugin plugin )
+    {
+        return getSecurityParameters( parameterService, plugin ).getPasswordPolicy(  );
     }
 
     /**
@@ -771,12 +942,14 @@ public class SecurityUtils
     public static String checkPasswordForBackOffice( IUserParameterService parameterService, Plugin plugin,
         String strPassword, HttpServletRequest request )
     {
-        if ( !SecurityUtils.checkUserPasswordMinimumLength( strPassword, parameterService, plugin ) )
+        PasswordPolicy.Result result = getPasswordPolicy( parameterService, plugin ).check( strPassword );
+
+        if ( result.isViolated( PasswordPolicy.Rule.MINIMUM_LENGTH ) )
         {
             return SecurityUtils.getMessagePasswordMinimumLength( request, parameterService, plugin );
         }
 
-        if ( !SecurityUtils.checkPasswordFormat( strPassword, parameterService, plugin ) )
+        if ( result.isFormatViolated(  ) )
         {
             return SecurityUtils.getMessageBackPasswordFormat( request, parameterService, plugin );
         }
@@ -788,23 +961,118 @@ public class SecurityUtils
      * Build the password depending of the encryption.
      * If the encryption is enable, then it returns the password encrypted,
      * otherwise it just returns the password given in parameter.
+     * Adaptive hashes are computed by the bounded pool of the
+     * {@link PasswordHashExecutorService} : prefer
+     * {@link #buildPassword(IUserParameterService, Plugin, String, Locale)}
+     * to report a saturated pool to the user.
      * @param parameterService The parameter service to use
      * @param plugin The plugin
      * @param strUserPassword the password
      * @return the password encrypted or not
+     * @throws AppException If the hashing pool is saturated
      */
     public static String buildPassword( IUserParameterService parameterService, Plugin plugin, String strUserPassword )
+    {
+        try
+        {
+            return buildPassword( getSecurityParameters( parameterService, plugin ), strUserPassword,
+                I18nService.getDefaultLocale(  ) );
+        }
+        catch ( PasswordHashingBusyException e )
+        {
+            throw new AppException( e.getMessage(  ), e );
+        }
+    }
+
+    /**
+     * Build the password depending of the encryption.
+     * If the encryption is enable, then it returns the password encrypted,
+     * otherwise it just returns the password given in parameter.
+     * Adaptive hashes are computed by the bounded pool of the
+     * {@link PasswordHashExecutorService}.
+     * @param parameterService The parameter service to use
+     * @param plugin The plugin
+     * @param strUserPassword the password
+     * @param locale The locale of the error message
+     * @return the password encrypted or not
+     * @throws PasswordHashingBusyException If the hashing pool is saturated
+     */
+    public static String buildPassword( IUserParameterService parameterService, Plugin plugin,
+        String strUserPassword, Locale locale ) throws PasswordHashingBusyException
+    {
+        return buildPassword( getSecurityParameters( parameterService, plugin ), strUserPassword, locale );
+    }
+
+    /**
+     * Build the password depending of the encryption of a parameter snapshot
+     * @param parameters The security parameters
+     * @param strUserPassword the password
+     * @param locale The locale of the error message
+     * @return the password encrypted or not
+     * @throws PasswordHashingBusyException If the hashing pool is saturated
+     */
+    private static String buildPassword( SecurityParameters parameters, final String strUserPassword, Locale locale )
+        throws PasswordHashingBusyException
     {
         // Check if there is an encryption algorithm
-        String strPassword = strUserPassword;
+        if ( !parameters.isPasswordEncrypted(  ) )
+        {
+            return strUserPassword;
+        }
 
-        if ( parameterService.isPasswordEncrypted( plugin ) )
+        if ( !PasswordHashService.isAdaptiveHashingEnabled(  ) )
         {
-            String strAlgorithm = parameterService.getEncryptionAlgorithm( plugin );
-            strPassword = CryptoService.encrypt( strUserPassword, strAlgorithm );
+            return CryptoService.encrypt( strUserPassword, parameters.getEncryptionAlgorithm(  ) );
         }
 
-        return strPassword;
+        return PasswordHashExecutorService.getInstance(  ).execute( new Callable<String>(  )
+            {
+                @Override
+                public String call(  )
+                {
+                    return PasswordHashService.getInstance(  ).hash( strUserPassword );
+                }
+            }, locale );
+    }
+
+    /**
+     * Checks a password against the stored password of a user. The stored
+     * password may be an adaptive hash, a legacy digest or a clear password.
+     * When the adaptive hashing is enabled, the result of a successful check
+     * holds the new hash if the stored password is not up to date.
+     * The hashes are computed by the bounded pool of the
+     * {@link PasswordHashExecutorService}. <br>
+     * This method is meant for the authentication modules, which own the stored
+     * passwords : they call it from their login flow instead of comparing
+     * {@link #buildPassword(IUserParameterService, Plugin, String)} results, and
+     * store {@link PasswordVerification#getUpgradedHash()} when it is not null.
+     * MyLutece itself has no login flow reading stored passwords.
+     * @param parameterService The parameter service to use
+     * @param plugin The plugin
+     * @param strPassword The password to check
+     * @param strStoredPassword The stored password
+     * @param locale The locale of the error message
+     * @return The result of the verification
+     * @throws PasswordHashingBusyException If the hashing pool is saturated
+     */
+    public static PasswordVerification checkPassword( IUserParameterService parameterService, Plugin plugin,
+        final String strPassword, final String strStoredPassword, Locale locale )
+        throws PasswordHashingBusyException
+    {
+        SecurityParameters parameters = getSecurityParameters( parameterService, plugin );
+        boolean bEncrypted = parameters.isPasswordEncrypted(  );
+        final String strLegacyAlgorithm = bEncrypted ? parameters.getEncryptionAlgorithm(  ) : null;
+        final boolean bUpgrade = bEncrypted && PasswordHashService.isAdaptiveHashingEnabled(  );
+
+        return PasswordHashExecutorService.getInstance(  ).execute( new Callable<PasswordVerification>(  )
+            {
+                @Override
+                public PasswordVerification call(  )
+                {
+                    return PasswordHashService.getInstance(  )
+                                              .verify( strPassword, strStoredPassword, strLegacyAlgorithm, bUpgrade );
+                }
+            }, locale );
     }
 
     /**
@@ -814,12 +1082,12 @@ public class SecurityUtils
      */
     public static String makePassword( IUserParameterService parameterService, Plugin plugin )
     {
-        int nMinimumLength = getIntegerSecurityParameter( parameterService, plugin, MARK_PASSWORD_MINIMUM_LENGTH );
+        SecurityParameters parameters = getSecurityParameters( parameterService, plugin );
 
-        return PasswordUtil.makePassword( nMinimumLength,
-            isPasswordFormatUpperLowerCaseUsed( parameterService, plugin ),
-            isPasswordFormatNumeroUsed( parameterService, plugin ),
-            isPasswordFormatSpecialCharactersUsed( parameterService, plugin ) );
+        return PasswordUtil.makePassword( parameters.getInteger( MARK_PASSWORD_MINIMUM_LENGTH ),
+            parameters.getBoolean( MARK_PASSWORD_FORMAT_UPPER_LOWER_CASE ),
+            parameters.getBoolean( MARK_PASSWORD_FORMAT_NUMERO ),
+            parameters.getBoolean( MARK_PASSWORD_FORMAT_SPECIAL_CHARACTERS ) );
     }
 
     /**
@@ -841,6 +1109,19 @@ public class SecurityUtils
         return null;
     }
 
+    /**
+     * Checks whether the domain name of an email address is banned, with the
+     * banned domain names compiled in the password policy of the plugin
+     * @param parameterService Parameter service
+     * @param plugin The plugin
+     * @param strEmail The email address
+     * @return true if the domain name of the email address is banned
+     */
+    public static boolean isBannedEmail( IUserParameterService parameterService, Plugin plugin, String strEmail )
+    {
+        return getPasswordPolicy( parameterService, plugin ).isBannedEmail( strEmail );
+    }
+
     /**
      * Build an url to reset connection logs for an IP and a given user. Data is read from the request.
      * @param nInterval Interval of time to reset
@@ -879,14 +1160,6 @@ public class SecurityUtils
     protected static boolean checkPasswordFormat( String strPassword, IUserParameterService parameterService,
         Plugin plugin )
     {
-        boolean bPasswordFormat = isPasswordFormatNumeroUsed( parameterService, plugin ) ||
-            isPasswordFormatSpecialCharactersUsed( parameterService, plugin ) ||
-            isPasswordFormatUpperLowerCaseUsed( parameterService, plugin );
-
-        return bPasswordFormat
-        ? PasswordUtil.checkPasswordFormat( strPassword,
-            isPasswordFormatUpperLowerCaseUsed( parameterService, plugin ),
-            isPasswordFormatNumeroUsed( parameterService, plugin ),
-            isPasswordFormatSpecialCharactersUsed( parameterService, plugin ) ) : true;
+        return !getPasswordPolicy( parameterService, plugin ).check( strPassword ).isFormatViolated(  );
     }
 }
@@ -37,6 +37,8 @@ import fr.paris.lutece.plugins.mylutece.authentication.MultiLuteceAuthentication
 import fr.paris.lutece.plugins.mylutece.authentication.logs.ConnectionLog;
 import fr.paris.lutece.plugins.mylutece.authentication.logs.ConnectionLogHome;
 import fr.paris.lutece.plugins.mylutece.service.MyLutecePlugin;
+import fr.paris.lutece.plugins.mylutece.service.password.PasswordHashingBusyException;
+import fr.paris.lutece.plugins.mylutece.service.security.UserLookupService;
 import fr.paris.lutece.portal.service.captcha.CaptchaSecurityService;
 import fr.paris.lutece.portal.service.i18n.I18nService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -313,6 +315,7 @@ public class MyLuteceApp implements XPageApplication
 
         try
         {
+            UserLookupService.clear( request );
             SecurityService.getInstance( ).loginUser( request, strUsername, strPassword );
         }
         catch ( LoginRedirectException ex )
@@ -328,12 +331,16 @@ public class MyLuteceApp implements XPageApplication
         }
         catch ( FailedLoginException ex )
         {
-            // Creating a record of connections log
-            ConnectionLog connectionLog = new ConnectionLog( );
-            connectionLog.setIpAddress( SecurityUtil.getRealIp( request ) );
-            connectionLog.setDateLogin( new java.sql.Timestamp( new java.util.Date( ).getTime( ) ) );
-            connectionLog.setLoginStatus( ConnectionLog.LOGIN_DENIED ); // will be inserted only if access denied
-            ConnectionLogHome.addUserLog( connectionLog, plugin );
+            // A saturated hashing pool is not a failed attempt of the user
+            if ( !( ex instanceof PasswordHashingBusyException ) )
+            {
+                // Creating a record of connections log
+                ConnectionLog connectionLog = new ConnectionLog( );
+                connectionLog.setIpAddress( SecurityUtil.getRealIp( request ) );
+                connectionLog.setDateLogin( new java.sql.Timestamp( new java.util.Date( ).getTime( ) ) );
+                connectionLog.setLoginStatus( ConnectionLog.LOGIN_DENIED ); // will be inserted only if access denied
+                ConnectionLogHome.addUserLog( connectionLog, plugin );
+            }
 
             strReturn += ( "&" + PARAMETER_ERROR + "=" + PARAMETER_ERROR_VALUE_INVALID );
 
@@ -487,6 +494,7 @@ public class MyLuteceApp implements XPageApplication
     public String doLogout( HttpServletRequest request )
     {
         SecurityService.getInstance( ).logoutUser( request );
+        UserLookupService.clear( request );
 
         return getDefaultRedirectUrl( );
     }
@@ -39,6 +39,7 @@ import fr.paris.lutece.plugins.mylutece.business.attribute.AttributeHome;
 import fr.paris.lutece.plugins.mylutece.business.attribute.IAttribute;
 import fr.paris.lutece.plugins.mylutece.business.attribute.MyLuteceUserFieldHome;
 import fr.paris.lutece.plugins.mylutece.service.MyLutecePlugin;
+import fr.paris.lutece.plugins.mylutece.service.invalidation.InvalidationService;
 import fr.paris.lutece.portal.service.message.AdminMessage;
 import fr.paris.lutece.portal.service.message.AdminMessageService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -151,6 +152,7 @@ public class AttributeFieldJspBean extends AdminFeaturesPageJspBean
             attributeField.setAttribute( attribute );
 
             AttributeFieldHome.create( attributeField, plugin );
+            InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
         }
 
         String strUrl = JSP_MODIFY_ATTRIBUTE + "?" + PARAMETER_ID_ATTRIBUTE + "=" + nIdAttribute;
@@ -223,6 +225,7 @@ public class AttributeFieldJspBean extends AdminFeaturesPageJspBean
             attributeField.setDefaultValue( strDefaultValue != null );
 
             AttributeFieldHome.update( attributeField, plugin );
+            InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
         }
 
         String strUrl = JSP_MODIFY_ATTRIBUTE + "?" + PARAMETER_ID_ATTRIBUTE + "=" + strIdAttribute;
@@ -262,6 +265,7 @@ public class AttributeFieldJspBean extends AdminFeaturesPageJspBean
 
         AttributeFieldHome.remove( nIdField, plugin );
         MyLuteceUserFieldHome.removeUserFieldsFromIdField( nIdField, plugin );
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
 
         String strUrl = JSP_MODIFY_ATTRIBUTE + "?" + PARAMETER_ID_ATTRIBUTE + "=" + strIdAttribute;
 
@@ -40,6 +40,7 @@ import fr.paris.lutece.plugins.mylutece.business.attribute.AttributeType;
 import fr.paris.lutece.plugins.mylutece.business.attribute.IAttribute;
 import fr.paris.lutece.plugins.mylutece.business.attribute.MyLuteceUserFieldHome;
 import fr.paris.lutece.plugins.mylutece.service.MyLutecePlugin;
+import fr.paris.lutece.plugins.mylutece.service.invalidation.InvalidationService;
 import fr.paris.lutece.portal.service.message.AdminMessage;
 import fr.paris.lutece.portal.service.message.AdminMessageService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -226,6 +227,8 @@ public class AttributeJspBean extends AdminFeaturesPageJspBean
                 }
             }
 
+            InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
+
             if ( strActionApply != null )
             {
                 return JSP_MODIFY_ATTRIBUTE + "?" + PARAMETER_ID_ATTRIBUTE + "=" + attribute.getIdAttribute(  );
@@ -301,6 +304,8 @@ public class AttributeJspBean extends AdminFeaturesPageJspBean
                 }
             }
 
+            InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
+
             if ( strActionApply != null )
             {
                 return JSP_MODIFY_ATTRIBUTE + "?" + PARAMETER_ID_ATTRIBUTE + "=" + attribute.getIdAttribute(  );
@@ -340,6 +345,7 @@ public class AttributeJspBean extends AdminFeaturesPageJspBean
         AttributeHome.remove( nIdAttribute, plugin );
         AttributeFieldHome.removeAttributeFieldsFromIdAttribute( nIdAttribute, plugin );
         MyLuteceUserFieldHome.removeUserFieldsFromIdAttribute( nIdAttribute, plugin );
+        InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_USER_ATTRIBUTES );
 
         return JSP_MANAGE_ATTRIBUTES;
     }
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.mylutece.web.includes;
 
 import fr.paris.lutece.plugins.mylutece.authentication.MultiLuteceAuthentication;
+import fr.paris.lutece.plugins.mylutece.service.security.UserLookupService;
 import fr.paris.lutece.plugins.mylutece.web.MyLuteceApp;
 import fr.paris.lutece.portal.service.content.PageData;
 import fr.paris.lutece.portal.service.content.XPageAppService;
@@ -91,7 +92,7 @@ public class UserLoginInclude implements PageInclude
         {
             if ( request != null )
             {
-                LuteceUser user = SecurityService.getInstance(  ).getRegisteredUser( request );
+                LuteceUser user = UserLookupService.getRegisteredUser( request );
                 model.put( MARK_DO_LOGIN, SecurityService.getInstance(  ).getDoLoginUrl(  ) );
                 model.put( MARK_DO_LOGOUT, SecurityService.getInstance(  ).getDoLogoutUrl(  ) );
                 model.put( MARK_URL_ACCOUNT, SecurityService.getInstance(  ).getViewAccountPageUrl() );
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.mylutece.web.security;
 
 import fr.paris.lutece.plugins.mylutece.service.MyLuteceResourceIdService;
+import fr.paris.lutece.plugins.mylutece.service.invalidation.InvalidationService;
 import fr.paris.lutece.plugins.mylutece.service.security.AuthenticationFilterService;
 import fr.paris.lutece.portal.business.rbac.RBAC;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
@@ -159,6 +160,7 @@ public class AuthenticationFilterJspBean extends AdminFeaturesPageJspBean
 
             //create public url
             DatastoreService.setDataValue( publicUrlData.getCode(  ), publicUrlData.getName(  ) );
+            InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_PUBLIC_URLS );
         }
 
         return JSP_MANAGE_AUTHENTICATION_FILTER;
@@ -201,6 +203,7 @@ public class AuthenticationFilterJspBean extends AdminFeaturesPageJspBean
 
             //updateParameter
             DatastoreService.setDataValue( publicUrlData.getCode(  ), publicUrlData.getName(  ) );
+            InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_PUBLIC_URLS );
         }
 
         return JSP_MANAGE_AUTHENTICATION_FILTER;
@@ -281,6 +284,7 @@ public class AuthenticationFilterJspBean extends AdminFeaturesPageJspBean
         {
             normalizedPublicUrlCode( publicUrlData );
             DatastoreService.removeData( publicUrlData.getCode(  ) );
+            InvalidationService.getInstance(  ).publish( InvalidationService.TOPIC_PUBLIC_URLS );
         }
 
         return JSP_MANAGE_AUTHENTICATION_FILTER;
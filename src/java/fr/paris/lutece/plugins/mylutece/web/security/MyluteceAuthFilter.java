@@ -34,6 +34,8 @@
 package fr.paris.lutece.plugins.mylutece.web.security;
 
 import fr.paris.lutece.plugins.mylutece.service.security.AuthenticationFilterService;
+import fr.paris.lutece.plugins.mylutece.service.security.RequestedUrl;
+import fr.paris.lutece.plugins.mylutece.service.security.UserLookupService;
 import fr.paris.lutece.portal.service.message.SiteMessage;
 import fr.paris.lutece.portal.service.message.SiteMessageException;
 import fr.paris.lutece.portal.service.message.SiteMessageService;
@@ -43,7 +45,6 @@ import fr.paris.lutece.portal.service.security.UserNotSignedException;
 import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.web.PortalJspBean;
 import fr.paris.lutece.portal.web.constants.Messages;
-import fr.paris.lutece.util.url.UrlItem;
 
 import java.io.IOException;
 
@@ -62,11 +63,6 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class MyluteceAuthFilter implements Filter
 {
-    private static final String URL_INTERROGATIVE = "?";
-    private static final String URL_AMPERSAND = "&";
-    private static final String URL_EQUAL = "=";
-    private static final String URL_STAR = "*";
-
     /**
      * {@inheritDoc}
      */
@@ -140,7 +136,7 @@ public class MyluteceAuthFilter implements Filter
      * */
     private boolean isPrivateUrl( HttpServletRequest request )
     {
-        return !( ( isInSiteMessageUrl( request ) || ( isInPublicUrlList( request ) ) ) );
+        return !AuthenticationFilterService.getInstance(  ).isPublicUrl( RequestedUrl.getRequestedUrl( request ) );
     }
 
     /**
@@ -162,9 +158,9 @@ public class MyluteceAuthFilter implements Filter
         {
             // The authentication is external
             // Should register the user if it's not already done
-            if ( SecurityService.getInstance(  ).getRegisteredUser( request ) == null )
+            if ( UserLookupService.getRegisteredUser( request ) == null )
             {
-                if ( ( SecurityService.getInstance(  ).getRemoteUser( request ) == null ) &&
+                if ( ( UserLookupService.getRemoteUser( request ) == null ) &&
                         ( SecurityService.getInstance(  ).isPortalAuthenticationRequired(  ) ) )
                 {
                     // Authentication is required to access to the portal
@@ -174,7 +170,7 @@ public class MyluteceAuthFilter implements Filter
         }
         else
         {
-            LuteceUser user = SecurityService.getInstance(  ).getRegisteredUser( request );
+            LuteceUser user = UserLookupService.getRegisteredUser( request );
 
             // no checks are needed if the user is already registered
             if ( user == null )
@@ -188,7 +184,7 @@ public class MyluteceAuthFilter implements Filter
                     // getRemoteUser throws an exception if no user found,
                     // but here we have to bypass this exception to display
                     // login page.
-                    user = SecurityService.getInstance(  ).getRemoteUser( request );
+                    user = UserLookupService.getRemoteUser( request );
                 }
 
                 // If portal authentication is enabled and user is null and
@@ -202,120 +198,4 @@ public class MyluteceAuthFilter implements Filter
             }
         }
     }
-
-    /**
-     * Checks if the requested is the url of site message
-     * @param request The HTTP request
-     * @return true if the requested is the url of site message
-     */
-    private boolean isInSiteMessageUrl( HttpServletRequest request )
-    {
-        return matchUrl( request, AppPathService.getSiteMessageUrl( request ) );
-    }
-
-    /**
-     * Checks if the requested is in the list of urls defined in  Security service
-     * that shouldn't be protected
-     *
-     * @param request
-     *            the http request
-    
-     * @return true if the url is in the list, false otherwise
-     *
-     * */
-    private boolean isInPublicUrlList( HttpServletRequest request )
-    {
-        for ( String strPubliUrl : AuthenticationFilterService.getInstance(  ).getPublicUrls(  ) )
-        {
-            if ( matchUrl( request, strPubliUrl ) )
-            {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * method to test if the URL matches the pattern
-    
-     * @param request the request
-     * @param strUrlPatern the pattern
-     * @return true if the URL matches the pattern
-     */
-    private boolean matchUrl( HttpServletRequest request, String strUrlPatern )
-    {
-        boolean bMatch = false;
-
-        if ( strUrlPatern != null )
-        {
-            UrlItem url = new UrlItem( getResquestedUrl( request ) );
-
-            if ( strUrlPatern.contains( URL_INTERROGATIVE ) )
-            {
-                for ( String strParamPatternValue : strUrlPatern.substring( strUrlPatern.indexOf( URL_INTERROGATIVE ) +
-                        1 ).split( URL_AMPERSAND ) )
-                {
-                    String[] arrayPatternParamValue = strParamPatternValue.split( URL_EQUAL );
-
-                    if ( ( arrayPatternParamValue != null ) &&
-                            ( request.getParameter( arrayPatternParamValue[0] ) != null ) )
-                    {
-                        url.addParameter( arrayPatternParamValue[0], request.getParameter( arrayPatternParamValue[0] ) );
-                    }
-                }
-            }
-
-            if ( strUrlPatern.contains( URL_STAR ) )
-            {
-                String strUrlPaternLeftEnd = strUrlPatern.substring( 0, strUrlPatern.indexOf( URL_STAR ) );
-                String strAbsoluteUrlPattern = getAbsoluteUrl( request, strUrlPaternLeftEnd );
-                bMatch = url.getUrl(  ).startsWith( strAbsoluteUrlPattern );
-            }
-            else
-            {
-                String strAbsoluteUrlPattern = getAbsoluteUrl( request, strUrlPatern );
-                bMatch = url.getUrl(  ).equals( strAbsoluteUrlPattern );
-            }
-        }
-
-        return bMatch;
-    }
-
-    /**
-     * Returns the absolute url corresponding to the given one, if the later was
-     * found to be relative. An url starting with "http://" is absolute. A
-     * relative url should be given relatively to the webapp root.
-     *
-     * @param request
-     *            the http request (provides the base path if needed)
-     * @param strUrl
-     *            the url to transform
-     * @return the corresonding absolute url
-     *
-     * */
-    private String getAbsoluteUrl( HttpServletRequest request, String strUrl )
-    {
-        if ( ( strUrl != null ) && !strUrl.startsWith( "http://" ) && !strUrl.startsWith( "https://" ) )
-        {
-            return AppPathService.getBaseUrl( request ) + strUrl;
-        }
-        else
-        {
-            return strUrl;
-        }
-    }
-
-    /**
-     * Return the absolute representation of the requested url
-     *
-     * @param request
-     *            the http request (provides the base path if needed)
-     * @return the requested url has a string
-     *
-     * */
-    private String getResquestedUrl( HttpServletRequest request )
-    {
-        return AppPathService.getBaseUrl( request ) + request.getServletPath(  ).substring( 1 );
-    }
 }
@@ -58,4 +58,15 @@ CREATE TABLE mylutece_connections_log (
 	ip_address varchar(63) default NULL,
 	date_login timestamp default CURRENT_TIMESTAMP NOT NULL,
 	login_status int default NULL
-);
\ No newline at end of file
+);
+
+DROP TABLE IF EXISTS mylutece_invalidation_version;
+CREATE TABLE mylutece_invalidation_version (
+	topic VARCHAR(100) NOT NULL,
+	version BIGINT DEFAULT 0 NOT NULL,
+	PRIMARY KEY (topic)
+);
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'security_parameters', 0 );
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'public_urls', 0 );
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'roles', 0 );
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'user_attributes', 0 );
@@ -0,0 +1,9 @@
+CREATE TABLE mylutece_invalidation_version (
+	topic VARCHAR(100) NOT NULL,
+	version BIGINT DEFAULT 0 NOT NULL,
+	PRIMARY KEY (topic)
+);
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'security_parameters', 0 );
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'public_urls', 0 );
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'roles', 0 );
+INSERT INTO mylutece_invalidation_version ( topic, version ) VALUES ( 'user_attributes', 0 );
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2016, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service;
+
+import java.util.Arrays;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class RoleDictionaryTest extends LuteceTestCase
+{
+    public void testBitSet( )
+    {
+        RoleDictionary dictionary = RoleDictionary.getInstance( );
+        String[] arrayRoles = new String[100];
+
+        for ( int i = 0; i < arrayRoles.length; i++ )
+        {
+            arrayRoles[i] = "role_dictionary_test_" + i;
+        }
+
+        long[] bitSet = dictionary.toBitSet( new String[] { arrayRoles[3], arrayRoles[70] } );
+        dictionary.internAll( Arrays.asList( arrayRoles ) );
+
+        assertEquals( dictionary.getId( arrayRoles[3] ), dictionary.intern( arrayRoles[3] ) );
+        assertTrue( RoleDictionary.contains( bitSet, dictionary.getId( arrayRoles[3] ) ) );
+        assertTrue( RoleDictionary.contains( bitSet, dictionary.getId( arrayRoles[70] ) ) );
+        assertFalse( RoleDictionary.contains( bitSet, dictionary.getId( arrayRoles[99] ) ) );
+        assertFalse( RoleDictionary.contains( bitSet, dictionary.getId( "role_dictionary_test_unknown" ) ) );
+        assertEquals( -1, dictionary.getId( "role_dictionary_test_unknown" ) );
+    }
+
+    public void testMask( )
+    {
+        RoleDictionary dictionary = RoleDictionary.getInstance( );
+        long[] bitSet = dictionary.toBitSet( new String[] { "role_mask_test_a", "role_mask_test_b" } );
+
+        assertTrue( RoleDictionary.intersects( bitSet, dictionary.getMask( Arrays.asList( "role_mask_test_unknown", "role_mask_test_b" ) ) ) );
+        assertFalse( RoleDictionary.intersects( bitSet, dictionary.getMask( Arrays.asList( "role_mask_test_unknown" ) ) ) );
+        assertFalse( RoleDictionary.intersects( bitSet, dictionary.getMask( Arrays.asList( "role_mask_test_c" ) ) ) );
+        assertEquals( -1, dictionary.getId( "role_mask_test_c" ) );
+    }
+}
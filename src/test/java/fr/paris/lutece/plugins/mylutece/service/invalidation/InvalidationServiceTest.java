@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2016, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.invalidation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class InvalidationServiceTest extends LuteceTestCase
+{
+    private static final String TOPIC = "test_topic";
+
+    public void testPublishAndPoll( )
+    {
+        MemoryInvalidationTransport transport = new MemoryInvalidationTransport( );
+        InvalidationService node1 = new InvalidationService( transport );
+        InvalidationService node2 = new InvalidationService( transport );
+        List<String> listInvalidations1 = new ArrayList<String>( );
+        List<String> listInvalidations2 = new ArrayList<String>( );
+        node1.addListener( TOPIC, new RecordingListener( listInvalidations1 ) );
+        node2.addListener( TOPIC, new RecordingListener( listInvalidations2 ) );
+
+        node1.publish( TOPIC );
+        assertEquals( 1, listInvalidations1.size( ) );
+        assertEquals( 0, listInvalidations2.size( ) );
+
+        // The publishing node is already up to date
+        assertEquals( 0, node1.poll( ) );
+        assertEquals( 1, listInvalidations1.size( ) );
+
+        assertEquals( 1, node2.poll( ) );
+        assertEquals( 1, listInvalidations2.size( ) );
+        assertEquals( 0, node2.poll( ) );
+        assertEquals( 1, listInvalidations2.size( ) );
+    }
+
+    public void testConcurrentPublications( )
+    {
+        MemoryInvalidationTransport transport = new MemoryInvalidationTransport( );
+        InvalidationService node1 = new InvalidationService( transport );
+        InvalidationService node2 = new InvalidationService( transport );
+        List<String> listInvalidations1 = new ArrayList<String>( );
+        node1.addListener( TOPIC, new RecordingListener( listInvalidations1 ) );
+
+        node2.publish( TOPIC );
+        node1.publish( TOPIC );
+
+        // The publication of node2 has not been seen by node1 yet
+        assertEquals( 1, node1.poll( ) );
+        assertEquals( 2, listInvalidations1.size( ) );
+    }
+
+    /**
+     * Transport shared by the nodes of a test
+     */
+    private static class MemoryInvalidationTransport implements IInvalidationTransport
+    {
+        private final Map<String, Long> _mapVersions = new HashMap<String, Long>( );
+
+        @Override
+        public long publish( String strTopic )
+        {
+            Long lVersion = _mapVersions.get( strTopic );
+            long lNewVersion = ( lVersion == null ) ? 1 : ( lVersion + 1 );
+            _mapVersions.put( strTopic, lNewVersion );
+
+            return lNewVersion;
+        }
+
+        @Override
+        public Map<String, Long> getVersions( )
+        {
+            return new HashMap<String, Long>( _mapVersions );
+        }
+    }
+
+    /**
+     * Listener recording the invalidated topics
+     */
+    private static class RecordingListener implements IInvalidationListener
+    {
+        private final List<String> _listInvalidations;
+
+        RecordingListener( List<String> listInvalidations )
+        {
+            _listInvalidations = listInvalidations;
+        }
+
+        @Override
+        public void invalidate( String strTopic )
+        {
+            _listInvalidations.add( strTopic );
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002-2016, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.password;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.concurrent.CancellationException;
+
+public class Pbkdf2PasswordHasherTest extends LuteceTestCase
+{
+    public void testVerify( )
+    {
+        Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher( 2 );
+
+        // PBKDF2-HMAC-SHA256 test vectors, password "password" and salt "salt"
+        assertTrue( hasher.verify( "password",
+                "PBKDF2WITHHMACSHA256:1:73616c74:120fb6cffcf8b32c43e7225256c4f837a86548c92ccc35480805987cb70be17b" ) );
+        assertTrue( hasher.verify( "password",
+                "PBKDF2WITHHMACSHA256:2:73616c74:ae4d0c95af6b46d32d0adff928f06dd02a303f8ef3c251dfd6e2d85a95474c43" ) );
+        assertFalse( hasher.verify( "Password",
+                "PBKDF2WITHHMACSHA256:2:73616c74:ae4d0c95af6b46d32d0adff928f06dd02a303f8ef3c251dfd6e2d85a95474c43" ) );
+        assertFalse( hasher.verify( "password", "PBKDF2WITHHMACSHA256:2:73616c74:zz" ) );
+        assertFalse( hasher.verify( "password", "5e884898da28047151d0e56f8dc6292773603d0d6aabbdd62a11ef721d1542d8" ) );
+    }
+
+    public void testHash( )
+    {
+        Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher( 10 );
+        String strHash = hasher.hash( "secret" );
+
+        assertTrue( strHash.startsWith( Pbkdf2PasswordHasher.ALGORITHM + ":10:" ) );
+        assertTrue( hasher.verify( "secret", strHash ) );
+        assertFalse( hasher.verify( "secrets", strHash ) );
+        assertFalse( strHash.equals( hasher.hash( "secret" ) ) );
+        assertFalse( hasher.needsRehash( strHash ) );
+        assertTrue( new Pbkdf2PasswordHasher( 20 ).needsRehash( strHash ) );
+        assertTrue( hasher.verify( "", hasher.hash( "" ) ) );
+    }
+
+    public void testInterruption( )
+    {
+        Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher( 100000000 );
+        Thread.currentThread( ).interrupt( );
+
+        try
+        {
+            hasher.hash( "secret" );
+            fail( "An interrupted hash should stop" );
+        }
+        catch ( CancellationException e )
+        {
+            assertTrue( Thread.interrupted( ) );
+        }
+    }
+}
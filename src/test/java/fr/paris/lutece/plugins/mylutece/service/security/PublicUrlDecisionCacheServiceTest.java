@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2016, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.security;
+
+import java.util.Arrays;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class PublicUrlDecisionCacheServiceTest extends LuteceTestCase
+{
+    private static RequestedUrl getRequestedUrl( String... parameters )
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( );
+        request.setContextPath( "/lutece" );
+        request.setServletPath( "/jsp/site/Portal.jsp" );
+        for ( int i = 0; i < parameters.length; i += 2 )
+        {
+            request.setParameter( parameters[i], parameters[i + 1] );
+        }
+        return RequestedUrl.getRequestedUrl( request );
+    }
+
+    public void testForgedValue( )
+    {
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( Arrays.asList( "jsp/site/Portal.jsp?page=mylutece&action=login" ), false );
+        PublicUrlDecisionCacheService cacheService = PublicUrlDecisionCacheService.getInstance( );
+        RequestedUrl login = getRequestedUrl( "page", "mylutece", "action", "login" );
+        RequestedUrl forged = getRequestedUrl( "action", "login&page=mylutece" );
+
+        assertTrue( matcher.matches( login ) );
+        assertFalse( matcher.matches( forged ) );
+        assertFalse( cacheService.getKey( login, matcher ).equals( cacheService.getKey( forged, matcher ) ) );
+    }
+
+    public void testMatcherVersion( )
+    {
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( Arrays.asList( "jsp/site/Portal.jsp?page=mylutece" ), false );
+        PublicUrlMatcher newMatcher = PublicUrlMatcher.compile( Arrays.asList( "jsp/site/Portal.jsp?page=mylutece" ), false );
+        PublicUrlDecisionCacheService cacheService = PublicUrlDecisionCacheService.getInstance( );
+        RequestedUrl requestedUrl = getRequestedUrl( "page", "mylutece" );
+
+        assertFalse( cacheService.getKey( requestedUrl, matcher ).equals( cacheService.getKey( requestedUrl, newMatcher ) ) );
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2002-2016, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.service.security;
+
+import java.util.Arrays;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class PublicUrlMatcherTest extends LuteceTestCase
+{
+    private static MockHttpServletRequest getRequest( String strServletPath )
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( );
+        request.setContextPath( "/lutece" );
+        request.setServletPath( strServletPath );
+        return request;
+    }
+
+    public void testExactAndPrefix( )
+    {
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( Arrays.asList( "jsp/site/plugins/mylutece/DoMyLuteceLogin.jsp",
+                "jsp/site/plugins/myplugin/*" ), false );
+        assertTrue( matcher.matches( getRequest( "/jsp/site/plugins/mylutece/DoMyLuteceLogin.jsp" ) ) );
+        assertFalse( matcher.matches( getRequest( "/jsp/site/plugins/mylutece/DoMyLuteceLogout.jsp" ) ) );
+        assertTrue( matcher.matches( getRequest( "/jsp/site/plugins/myplugin/DoAction.jsp" ) ) );
+        assertFalse( matcher.matches( getRequest( "/jsp/site/plugins/myplugi" ) ) );
+    }
+
+    public void testParameters( )
+    {
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( Arrays.asList( "jsp/site/Portal.jsp?page=mylutece&action=login",
+                "jsp/site/Portal.jsp?page=public*" ), false );
+        MockHttpServletRequest request = getRequest( "/jsp/site/Portal.jsp" );
+        request.setParameter( "action", "login" );
+        request.setParameter( "page", "mylutece" );
+        request.setParameter( "other", "value" );
+        assertTrue( matcher.matches( request ) );
+
+        request = getRequest( "/jsp/site/Portal.jsp" );
+        request.setParameter( "page", "mylutece" );
+        assertFalse( matcher.matches( request ) );
+
+        request = getRequest( "/jsp/site/Portal.jsp" );
+        request.setParameter( "page", "public_news" );
+        assertTrue( matcher.matches( request ) );
+        assertEquals( Arrays.asList( "action", "page" ), matcher.getParameterNames( ) );
+    }
+
+    public void testAntAndRegex( )
+    {
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( Arrays.asList( "ant:/jsp/site/plugins/**/Do*.jsp",
+                "regex:jsp/site/plugins/[a-z]+/Public\\.jsp" ), false );
+        assertTrue( matcher.matches( getRequest( "/jsp/site/plugins/DoLogin.jsp" ) ) );
+        assertTrue( matcher.matches( getRequest( "/jsp/site/plugins/a/b/DoLogin.jsp" ) ) );
+        assertFalse( matcher.matches( getRequest( "/jsp/site/plugins/a/Login.jsp" ) ) );
+        assertTrue( matcher.matches( getRequest( "/jsp/site/plugins/forms/Public.jsp" ) ) );
+        assertFalse( matcher.matches( getRequest( "/jsp/site/plugins/forms2/Public.jsp" ) ) );
+    }
+
+    public void testUnprefixedStarKeepsPrefixMeaning( )
+    {
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( Arrays.asList( "jsp/site/plugins/*/Do*.jsp" ), false );
+        assertTrue( matcher.matches( getRequest( "/jsp/site/plugins/a/Login.jsp" ) ) );
+        assertTrue( matcher.matches( getRequest( "/jsp/site/plugins/" ) ) );
+        assertFalse( matcher.matches( getRequest( "/jsp/site/Portal.jsp" ) ) );
+    }
+
+    public void testRelativeMatching( )
+    {
+        PublicUrlMatcher matcher = PublicUrlMatcher.compile( Arrays.asList( "http://www.example.com/lutece/jsp/site/Portal.jsp?page=map" ),
+                true );
+        MockHttpServletRequest request = getRequest( "/jsp/site/Portal.jsp" );
+        request.setParameter( "page", "map" );
+        assertTrue( matcher.matches( request ) );
+        assertFalse( matcher.isBaseUrlDependent( ) );
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002-2016, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.mylutece.util;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+public class PasswordPolicyTest extends LuteceTestCase
+{
+    public void testCheck( )
+    {
+        PasswordPolicy policy = new PasswordPolicy( 8, true, true, true );
+
+        assertTrue( policy.check( "Abcdef1!" ).isValid( ) );
+
+        PasswordPolicy.Result result = policy.check( "abc" );
+        assertFalse( result.isValid( ) );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.MINIMUM_LENGTH ) );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.UPPER_LOWER_CASE ) );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.NUMERO ) );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.SPECIAL_CHARACTERS ) );
+        assertEquals( 4, result.getViolatedRules( ).size( ) );
+
+        result = policy.check( "ABCDEFGH1 " );
+        assertTrue( result.isFormatViolated( ) );
+        assertFalse( result.isViolated( PasswordPolicy.Rule.MINIMUM_LENGTH ) );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.UPPER_LOWER_CASE ) );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.SPECIAL_CHARACTERS ) );
+        assertFalse( result.isViolated( PasswordPolicy.Rule.NUMERO ) );
+
+        assertTrue( new PasswordPolicy( 0, false, false, false ).check( null ).isValid( ) );
+    }
+
+    public void testNonAsciiCharacters( )
+    {
+        PasswordPolicy policy = new PasswordPolicy( 0, true, true, true );
+
+        // Accented letters and Arabic-Indic digits are not letters nor numbers of the policy
+        PasswordPolicy.Result result = policy.check( "\u00e9\u00c9\u0661\u0662!" );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.UPPER_LOWER_CASE ) );
+        assertTrue( result.isViolated( PasswordPolicy.Rule.NUMERO ) );
+        assertFalse( result.isViolated( PasswordPolicy.Rule.SPECIAL_CHARACTERS ) );
+        assertTrue( policy.check( "aB1!\u00e9" ).isValid( ) );
+    }
+
+    public void testBannedEmail( )
+    {
+        PasswordPolicy policy = new PasswordPolicy( 0, false, false, false, new String[] { "Example.com", " " } );
+
+        assertTrue( policy.isBannedEmail( "john@example.COM" ) );
+        assertFalse( policy.isBannedEmail( "john@example.org" ) );
+        assertFalse( policy.isBannedEmail( null ) );
+        assertEquals( 1, policy.getBannedDomainNames( ).size( ) );
+        assertFalse( new PasswordPolicy( 0, false, false, false ).isBannedEmail( "john@example.com" ) );
+    }
+}